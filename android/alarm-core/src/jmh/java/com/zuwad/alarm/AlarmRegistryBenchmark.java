@@ -0,0 +1,167 @@
+package com.zuwad.alarm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Hot paths of the scheduling core against registries of 10 to 100k alarms.
+ *
+ * Run with {@code ./gradlew :alarm-core:jmh}. Single-alarm operations keep the registry
+ * at {@link #alarmCount} so every call measures the same heap size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AlarmRegistryBenchmark {
+    private static final long BASE_TIME = 1_700_000_000_000L;
+    private static final long SPACING_MS = 60 * 1000L;
+
+    // Share of the desired set that differs from the registry in the sync benchmark
+    private static final double SYNC_CHANGE_RATIO = 0.1;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int alarmCount;
+
+    private AlarmEntry[] alarms;
+    private AlarmEntry[] rescheduled;
+    private List<AlarmEntry> desired;
+    private List<Object> desiredRecords;
+    private AlarmRegistry registry;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void createAlarms() {
+        Random random = new Random(42);
+        alarms = new AlarmEntry[alarmCount];
+        rescheduled = new AlarmEntry[alarmCount];
+        for (int i = 0; i < alarmCount; i++) {
+            long triggerAt = BASE_TIME + i * SPACING_MS;
+            int alarmId = AlarmIds.forTrigger(triggerAt);
+            alarms[i] = new AlarmEntry(alarmId, triggerAt, "منبه الحصة", "حان وقت الحصة");
+            rescheduled[i] = new AlarmEntry(alarmId, triggerAt + SPACING_MS / 2,
+                    "منبه الحصة", "حان وقت الحصة");
+        }
+        // Schedules arrive in no particular order
+        Collections.shuffle(Arrays.asList(alarms), random);
+
+        // Same set with some alarms moved, some dropped and as many new ones added
+        desired = new ArrayList<>(alarmCount);
+        int changes = Math.max(1, (int) (alarmCount * SYNC_CHANGE_RATIO));
+        for (int i = 0; i < alarmCount; i++) {
+            if (i < changes / 2) {
+                continue;
+            }
+            desired.add(i < changes ? withTrigger(alarms[i], alarms[i].triggerAt + 1) : alarms[i]);
+        }
+        for (int i = 0; i < changes / 2; i++) {
+            long triggerAt = BASE_TIME - (i + 1) * SPACING_MS;
+            desired.add(new AlarmEntry(AlarmIds.forTrigger(triggerAt), triggerAt, "منبه الحصة", "حان وقت الحصة"));
+        }
+        desiredRecords = AlarmRecords.flatten(desired);
+    }
+
+    @Setup(Level.Iteration)
+    public void fillRegistry() {
+        registry = new AlarmRegistry();
+        for (AlarmEntry alarm : alarms) {
+            registry.put(alarm);
+        }
+        cursor = 0;
+    }
+
+    /**
+     * Loads every alarm into an empty registry, as after a process restart.
+     */
+    @Benchmark
+    public AlarmRegistry insertAll() {
+        AlarmRegistry fresh = new AlarmRegistry();
+        for (AlarmEntry alarm : alarms) {
+            fresh.put(alarm);
+        }
+        return fresh;
+    }
+
+    /**
+     * Moves one armed alarm to a new time.
+     */
+    @Benchmark
+    public AlarmEntry reschedule() {
+        int index = next();
+        AlarmEntry current = registry.get(alarms[index].id);
+        AlarmEntry updated = current == alarms[index] ? rescheduled[index] : alarms[index];
+        registry.put(updated);
+        return updated;
+    }
+
+    /**
+     * Cancels one alarm and schedules it again so the registry keeps its size.
+     */
+    @Benchmark
+    public AlarmEntry cancelAndRestore() {
+        AlarmEntry alarm = alarms[next()];
+        AlarmEntry removed = registry.remove(alarm.id);
+        registry.put(alarm);
+        return removed;
+    }
+
+    /**
+     * Diffs the registry against a desired set with 10% of the alarms changed.
+     */
+    @Benchmark
+    public AlarmRegistry.Diff sync() {
+        return registry.diff(desired);
+    }
+
+    /**
+     * Looks up the alarm the chain should be armed for.
+     */
+    @Benchmark
+    public AlarmEntry nextDue() {
+        return registry.peek();
+    }
+
+    /**
+     * Fires the earliest alarm and queues it again one spacing after the last one,
+     * as the chained alarm does on every wakeup.
+     */
+    @Benchmark
+    public List<AlarmEntry> pollDue() {
+        AlarmEntry head = registry.peek();
+        List<AlarmEntry> due = registry.pollDue(head.triggerAt);
+        for (AlarmEntry alarm : due) {
+            registry.put(withTrigger(alarm, alarm.triggerAt + alarmCount * SPACING_MS));
+        }
+        return due;
+    }
+
+    /**
+     * Parses the flat record list of a bulk schedule call.
+     */
+    @Benchmark
+    public List<AlarmEntry> parseRecords() {
+        return AlarmRecords.parse(desiredRecords, new ArrayList<>(desired.size()));
+    }
+
+    private int next() {
+        int index = cursor;
+        cursor = cursor + 1 == alarmCount ? 0 : cursor + 1;
+        return index;
+    }
+
+    private static AlarmEntry withTrigger(AlarmEntry alarm, long triggerAt) {
+        return new AlarmEntry(alarm.id, triggerAt, alarm.title, alarm.body);
+    }
+}
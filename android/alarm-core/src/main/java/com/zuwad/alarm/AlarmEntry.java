@@ -0,0 +1,45 @@
+package com.zuwad.alarm;
+
+/**
+ * A scheduled lesson alarm: its ID, trigger time, notification text and delivery class.
+ *
+ * An alarm without a tolerance is critical and fires on time. An alarm with a tolerance
+ * is an early reminder that may fire up to that long after its trigger time, so the
+ * system can batch it with other wakeups.
+ */
+public final class AlarmEntry {
+    public final int id;
+    public final long triggerAt;
+    public final String title;
+    public final String body;
+    public final long toleranceMs;
+
+    public AlarmEntry(int id, long triggerAt, String title, String body) {
+        this(id, triggerAt, title, body, 0);
+    }
+
+    public AlarmEntry(int id, long triggerAt, String title, String body, long toleranceMs) {
+        this.id = id;
+        this.triggerAt = triggerAt;
+        this.title = title;
+        this.body = body;
+        this.toleranceMs = Math.max(0, toleranceMs);
+    }
+
+    /**
+     * True if the alarm must fire on time rather than within a tolerance.
+     */
+    public boolean isCritical() {
+        return toleranceMs == 0;
+    }
+
+    /**
+     * True if {@code other} would fire at the same time, in the same way, with the same text.
+     */
+    public boolean sameAs(AlarmEntry other) {
+        return triggerAt == other.triggerAt
+                && toleranceMs == other.toleranceMs
+                && (title == null ? other.title == null : title.equals(other.title))
+                && (body == null ? other.body == null : body.equals(other.body));
+    }
+}
@@ -0,0 +1,42 @@
+package com.zuwad.alarm;
+
+/**
+ * Mapping between lesson alarms and the integer IDs Android needs for PendingIntent
+ * request codes and notifications.
+ */
+public final class AlarmIds {
+    /**
+     * Request code of the single chained PendingIntent. Alarm IDs are taken modulo
+     * {@link Integer#MAX_VALUE}, so they never collide with it.
+     */
+    public static final int CHAIN_REQUEST_CODE = Integer.MAX_VALUE;
+
+    /**
+     * Request code of the second chained PendingIntent, which carries early reminders.
+     * Only the two chains send alarm trigger broadcasts, so it cannot clash with an alarm.
+     */
+    public static final int REMINDER_CHAIN_REQUEST_CODE = Integer.MAX_VALUE - 1;
+
+    // Per-alarm notification IDs start here; the group summary sits just below
+    private static final int NOTIFICATION_ID_BASE = 1000;
+    public static final int SUMMARY_NOTIFICATION_ID = NOTIFICATION_ID_BASE - 1;
+
+    private AlarmIds() {
+    }
+
+    /**
+     * Alarm ID for an alarm at {@code triggerAtMillis}. Matches the ID Dart derives from
+     * the alarm time, so the same alarm always maps to the same ID.
+     */
+    public static int forTrigger(long triggerAtMillis) {
+        return (int) Math.floorMod(triggerAtMillis, (long) Integer.MAX_VALUE);
+    }
+
+    /**
+     * Notification ID of an alarm. Wraps to a negative value for the largest alarm IDs,
+     * which Android accepts.
+     */
+    public static int notificationId(int alarmId) {
+        return NOTIFICATION_ID_BASE + alarmId;
+    }
+}
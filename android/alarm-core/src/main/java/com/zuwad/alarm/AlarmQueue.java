@@ -0,0 +1,152 @@
+package com.zuwad.alarm;
+
+import java.util.Arrays;
+
+/**
+ * Indexed min-heap of pending alarm triggers, ordered by trigger time.
+ *
+ * Triggers and IDs live in parallel primitive arrays, and a primitive position index
+ * ({@link IntIntMap}) makes updates and cancels O(log n) without scanning the heap or
+ * boxing IDs.
+ */
+public final class AlarmQueue {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] triggers = new long[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int size;
+    private final IntIntMap positions = new IntIntMap();
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int alarmId) {
+        return positions.containsKey(alarmId);
+    }
+
+    /**
+     * Adds an alarm, or moves it if it is already queued.
+     */
+    public void add(int alarmId, long triggerAt) {
+        int position = positions.get(alarmId);
+        if (position != IntIntMap.MISSING) {
+            long previous = triggers[position];
+            triggers[position] = triggerAt;
+            if (triggerAt < previous) {
+                siftUp(position);
+            } else {
+                siftDown(position);
+            }
+            return;
+        }
+
+        if (size == triggers.length) {
+            triggers = Arrays.copyOf(triggers, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        triggers[size] = triggerAt;
+        ids[size] = alarmId;
+        positions.put(alarmId, size);
+        siftUp(size++);
+    }
+
+    public boolean remove(int alarmId) {
+        int position = positions.remove(alarmId);
+        if (position == IntIntMap.MISSING) {
+            return false;
+        }
+
+        int last = --size;
+        if (position != last) {
+            long previous = triggers[position];
+            move(last, position);
+            if (triggers[position] < previous) {
+                siftUp(position);
+            } else {
+                siftDown(position);
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        size = 0;
+        positions.clear();
+    }
+
+    /**
+     * Trigger time of the earliest alarm. Only valid when the queue is not empty.
+     */
+    public long peekTrigger() {
+        return triggers[0];
+    }
+
+    public int peekId() {
+        return ids[0];
+    }
+
+    /**
+     * Removes and returns every alarm due at or before {@code time}, earliest first.
+     */
+    public int[] pollDue(long time) {
+        int count = 0;
+        int[] due = new int[Math.min(size, 4)];
+        while (size > 0 && triggers[0] <= time) {
+            if (count == due.length) {
+                due = Arrays.copyOf(due, count * 2);
+            }
+            due[count++] = ids[0];
+            remove(ids[0]);
+        }
+        return count == due.length ? due : Arrays.copyOf(due, count);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (triggers[parent] <= triggers[position]) {
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int left = 2 * position + 1;
+            if (left >= size) {
+                break;
+            }
+            int right = left + 1;
+            int smallest = right < size && triggers[right] < triggers[left] ? right : left;
+            if (triggers[position] <= triggers[smallest]) {
+                break;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long trigger = triggers[a];
+        int id = ids[a];
+        triggers[a] = triggers[b];
+        ids[a] = ids[b];
+        triggers[b] = trigger;
+        ids[b] = id;
+        positions.put(ids[a], a);
+        positions.put(ids[b], b);
+    }
+
+    private void move(int from, int to) {
+        triggers[to] = triggers[from];
+        ids[to] = ids[from];
+        positions.put(ids[to], to);
+    }
+}
@@ -0,0 +1,58 @@
+package com.zuwad.alarm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decoding of the flat (alarm_id, timestamp, title, body, tolerance_ms) record lists that
+ * the bulk alarm channel calls send, which keeps those messages compact.
+ */
+public final class AlarmRecords {
+    public static final int RECORD_SIZE = 5;
+
+    private AlarmRecords() {
+    }
+
+    /**
+     * Parses {@code records}, adding one result per record to {@code results} so one bad
+     * record does not fail the rest. Trailing values that do not form a whole record are
+     * ignored.
+     */
+    public static List<AlarmEntry> parse(List<Object> records, List<Boolean> results) {
+        List<AlarmEntry> entries = new ArrayList<>();
+        if (records == null) {
+            return entries;
+        }
+
+        for (int i = 0; i + RECORD_SIZE <= records.size(); i += RECORD_SIZE) {
+            try {
+                entries.add(new AlarmEntry(
+                        ((Number) records.get(i)).intValue(),
+                        ((Number) records.get(i + 1)).longValue(),
+                        (String) records.get(i + 2),
+                        (String) records.get(i + 3),
+                        ((Number) records.get(i + 4)).longValue()
+                ));
+                results.add(true);
+            } catch (RuntimeException e) {
+                results.add(false);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Flattens {@code entries} into the record format, e.g. for tests or benchmarks.
+     */
+    public static List<Object> flatten(List<AlarmEntry> entries) {
+        List<Object> records = new ArrayList<>(entries.size() * RECORD_SIZE);
+        for (AlarmEntry entry : entries) {
+            records.add(entry.id);
+            records.add(entry.triggerAt);
+            records.add(entry.title);
+            records.add(entry.body);
+            records.add(entry.toleranceMs);
+        }
+        return records;
+    }
+}
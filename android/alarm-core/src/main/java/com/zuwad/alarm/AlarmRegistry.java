@@ -0,0 +1,144 @@
+package com.zuwad.alarm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * In-memory registry of every armed alarm, keyed by alarm ID.
+ *
+ * Lookups and cancels are O(1) hash operations. Trigger order is kept in an
+ * {@link AlarmQueue}; cancelled alarms are dropped from it lazily when they reach the
+ * head, so a cancel never has to restructure the heap. A second queue holds only the
+ * critical alarms, so the next one can be armed exactly while reminders queue ahead.
+ */
+public final class AlarmRegistry {
+    private final HashMap<Integer, AlarmEntry> alarms = new HashMap<>();
+    private final AlarmQueue queue = new AlarmQueue();
+    private final AlarmQueue criticalQueue = new AlarmQueue();
+
+    /**
+     * Changes needed to turn the registry into a desired set of alarms.
+     */
+    public static final class Diff {
+        public final List<AlarmEntry> inserts = new ArrayList<>();
+        public final List<AlarmEntry> updates = new ArrayList<>();
+        public final List<AlarmEntry> deletes = new ArrayList<>();
+
+        public boolean isEmpty() {
+            return inserts.isEmpty() && updates.isEmpty() && deletes.isEmpty();
+        }
+    }
+
+    public int size() {
+        return alarms.size();
+    }
+
+    public boolean isEmpty() {
+        return alarms.isEmpty();
+    }
+
+    public AlarmEntry get(int alarmId) {
+        return alarms.get(alarmId);
+    }
+
+    public Collection<AlarmEntry> entries() {
+        return alarms.values();
+    }
+
+    /**
+     * Adds an alarm, or replaces the one registered under the same ID.
+     */
+    public void put(AlarmEntry entry) {
+        AlarmEntry previous = alarms.put(entry.id, entry);
+        boolean moved = previous == null || previous.triggerAt != entry.triggerAt;
+        if (moved || !queue.contains(entry.id)) {
+            queue.add(entry.id, entry.triggerAt);
+        }
+        if (!entry.isCritical()) {
+            criticalQueue.remove(entry.id);
+        } else if (moved || !criticalQueue.contains(entry.id)) {
+            criticalQueue.add(entry.id, entry.triggerAt);
+        }
+    }
+
+    public AlarmEntry remove(int alarmId) {
+        return alarms.remove(alarmId);
+    }
+
+    public void clear() {
+        alarms.clear();
+        queue.clear();
+        criticalQueue.clear();
+    }
+
+    /**
+     * The earliest registered alarm, or null if there is none.
+     */
+    public AlarmEntry peek() {
+        while (!queue.isEmpty()) {
+            AlarmEntry head = alarms.get(queue.peekId());
+            if (head != null) {
+                return head;
+            }
+            // Cancelled since it was queued
+            queue.remove(queue.peekId());
+        }
+        return null;
+    }
+
+    /**
+     * The earliest critical alarm, or null if there is none.
+     */
+    public AlarmEntry peekCritical() {
+        while (!criticalQueue.isEmpty()) {
+            AlarmEntry head = alarms.get(criticalQueue.peekId());
+            if (head != null) {
+                return head;
+            }
+            criticalQueue.remove(criticalQueue.peekId());
+        }
+        return null;
+    }
+
+    /**
+     * Removes and returns every alarm due at or before {@code time}, earliest first.
+     */
+    public List<AlarmEntry> pollDue(long time) {
+        int[] dueIds = queue.pollDue(time);
+        List<AlarmEntry> due = new ArrayList<>(dueIds.length);
+        for (int alarmId : dueIds) {
+            criticalQueue.remove(alarmId);
+            AlarmEntry entry = alarms.remove(alarmId);
+            if (entry != null) {
+                due.add(entry);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Compares the registry against {@code desired} without modifying it.
+     */
+    public Diff diff(Collection<AlarmEntry> desired) {
+        Diff diff = new Diff();
+        HashMap<Integer, AlarmEntry> desiredById = new HashMap<>(desired.size() * 2);
+        for (AlarmEntry entry : desired) {
+            desiredById.put(entry.id, entry);
+
+            AlarmEntry current = alarms.get(entry.id);
+            if (current == null) {
+                diff.inserts.add(entry);
+            } else if (!current.sameAs(entry)) {
+                diff.updates.add(entry);
+            }
+        }
+        for (AlarmEntry current : alarms.values()) {
+            if (!desiredById.containsKey(current.id)) {
+                diff.deletes.add(current);
+            }
+        }
+        return diff;
+    }
+}
@@ -0,0 +1,56 @@
+package com.zuwad.alarm;
+
+/**
+ * AlarmManager API used to arm an alarm, chosen from the alarm's delivery class, the SDK
+ * level, whether the app may schedule exact alarms, and whether the device is idle.
+ *
+ * Critical alarms get exact delivery. Early reminders get a delivery window, so they
+ * neither wake the device on their own nor use up the allow-while-idle budget that
+ * Doze grants the critical alarms.
+ */
+public enum AlarmStrategy {
+    EXACT_ALLOW_WHILE_IDLE("setExactAndAllowWhileIdle"),
+    ALARM_CLOCK("setAlarmClock"),
+    EXACT("setExact"),
+    WINDOW("setWindow"),
+    INEXACT_ALLOW_WHILE_IDLE("setAndAllowWhileIdle");
+
+    // Build.VERSION_CODES values, repeated so this module has no Android dependency
+    private static final int SDK_M = 23;
+    private static final int SDK_S = 31;
+
+    /**
+     * Name of the AlarmManager method, as reported to Dart and in metrics.
+     */
+    public final String apiName;
+
+    AlarmStrategy(String apiName) {
+        this.apiName = apiName;
+    }
+
+    /**
+     * Picks the API for a critical alarm. On Android 12+ exact alarms need the
+     * SCHEDULE_EXACT_ALARM grant; without it the alarm clock API is used instead. In Doze,
+     * allow-while-idle alarms are rate limited and clustered ones fire late, so the alarm
+     * clock API, which is not, is used there as well.
+     */
+    public static AlarmStrategy chooseCritical(int sdkInt, boolean canScheduleExact, boolean deviceIdle) {
+        if (sdkInt >= SDK_S) {
+            return canScheduleExact && !deviceIdle ? EXACT_ALLOW_WHILE_IDLE : ALARM_CLOCK;
+        } else if (sdkInt >= SDK_M) {
+            // Android 6-11
+            return deviceIdle ? ALARM_CLOCK : EXACT_ALLOW_WHILE_IDLE;
+        }
+        // Android 5 and below
+        return EXACT;
+    }
+
+    /**
+     * Picks the API for an early reminder. Windowed alarms are held during Doze, so an
+     * idle device gets an inexact allow-while-idle alarm instead. Neither needs the
+     * exact alarm grant.
+     */
+    public static AlarmStrategy chooseReminder(int sdkInt, boolean deviceIdle) {
+        return sdkInt >= SDK_M && deviceIdle ? INEXACT_ALLOW_WHILE_IDLE : WINDOW;
+    }
+}
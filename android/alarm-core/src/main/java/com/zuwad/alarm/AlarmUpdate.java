@@ -0,0 +1,118 @@
+package com.zuwad.alarm;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/**
+ * An alarm change pushed by the server as an FCM data message, so it can be applied
+ * without starting Dart.
+ *
+ * The payload is the message's data map, all values strings:
+ * {@code type} = {@code alarm_update}, {@code op} and the fields of that op:
+ * <ul>
+ *   <li>{@code schedule}: {@code id}, {@code at} (epoch ms), {@code title}, {@code body},
+ *   optionally {@code tol} (tolerance in ms, see {@link AlarmEntry#toleranceMs})</li>
+ *   <li>{@code cancel}: {@code id}</li>
+ *   <li>{@code reschedule}: {@code id}, {@code at}, optionally a new {@code title} and
+ *   {@code body}</li>
+ *   <li>{@code postpone}: {@code from} (ISO date of the regular lesson), {@code time}
+ *   (its regular ISO start time, which tells lessons on the same day apart) and
+ *   {@code to} (ISO date-time it moved to), all in the lesson's time zone, for
+ *   {@link LessonRule}s</li>
+ * </ul>
+ */
+public final class AlarmUpdate {
+    public static final String TYPE = "alarm_update";
+
+    public static final int SCHEDULE = 1;
+    public static final int CANCEL = 2;
+    public static final int RESCHEDULE = 3;
+    public static final int POSTPONE = 4;
+
+    public final int op;
+    public final int alarmId;
+    public final long triggerAt;
+    // Null where the op keeps the current text
+    public final String title;
+    public final String body;
+    public final long toleranceMs;
+    public final LocalDate from;
+    public final LocalTime fromTime;
+    public final LocalDateTime to;
+
+    private AlarmUpdate(int op, int alarmId, long triggerAt, String title, String body, long toleranceMs,
+                        LocalDate from, LocalTime fromTime, LocalDateTime to) {
+        this.op = op;
+        this.alarmId = alarmId;
+        this.triggerAt = triggerAt;
+        this.title = title;
+        this.body = body;
+        this.toleranceMs = toleranceMs;
+        this.from = from;
+        this.fromTime = fromTime;
+        this.to = to;
+    }
+
+    /**
+     * Whether {@code data} is an alarm update rather than a message for Dart.
+     */
+    public static boolean isAlarmUpdate(Map<String, String> data) {
+        return data != null && TYPE.equals(data.get("type"));
+    }
+
+    /**
+     * Reads the update in {@code data}.
+     *
+     * @throws IllegalArgumentException if the op is unknown or a field it needs is
+     *                                  missing or malformed
+     */
+    public static AlarmUpdate parse(Map<String, String> data) {
+        String op = data.get("op");
+        try {
+            if ("schedule".equals(op)) {
+                String tolerance = data.get("tol");
+                return new AlarmUpdate(SCHEDULE, alarmId(data), triggerAt(data),
+                        required(data, "title"), required(data, "body"),
+                        tolerance != null ? Long.parseLong(tolerance) : 0, null, null, null);
+            } else if ("cancel".equals(op)) {
+                return new AlarmUpdate(CANCEL, alarmId(data), 0, null, null, 0, null, null, null);
+            } else if ("reschedule".equals(op)) {
+                return new AlarmUpdate(RESCHEDULE, alarmId(data), triggerAt(data),
+                        data.get("title"), data.get("body"), 0, null, null, null);
+            } else if ("postpone".equals(op)) {
+                return new AlarmUpdate(POSTPONE, 0, 0, null, null, 0,
+                        LocalDate.parse(required(data, "from")), LocalTime.parse(required(data, "time")),
+                        LocalDateTime.parse(required(data, "to")));
+            }
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed date in alarm update", e);
+        }
+        throw new IllegalArgumentException("Unknown alarm update op: " + op);
+    }
+
+    /**
+     * The alarm to arm for a {@link #SCHEDULE} update.
+     */
+    public AlarmEntry toEntry() {
+        return new AlarmEntry(alarmId, triggerAt, title, body, toleranceMs);
+    }
+
+    private static int alarmId(Map<String, String> data) {
+        return Integer.parseInt(required(data, "id"));
+    }
+
+    private static long triggerAt(Map<String, String> data) {
+        return Long.parseLong(required(data, "at"));
+    }
+
+    private static String required(Map<String, String> data, String key) {
+        String value = data.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Alarm update is missing " + key);
+        }
+        return value;
+    }
+}
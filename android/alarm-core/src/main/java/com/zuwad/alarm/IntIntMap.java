@@ -0,0 +1,133 @@
+package com.zuwad.alarm;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from int keys to non-negative int values, used as the position
+ * index of {@link AlarmQueue} so updates neither box keys nor allocate map entries.
+ *
+ * Linear probing at a load factor of at most one half; removals shift the rest of the
+ * probe run back instead of leaving tombstones.
+ */
+final class IntIntMap {
+    static final int MISSING = -1;
+
+    private static final int INITIAL_CAPACITY = 32; // power of two
+
+    private int[] keys = new int[INITIAL_CAPACITY];
+    // MISSING marks a free slot
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int size;
+
+    IntIntMap() {
+        Arrays.fill(values, MISSING);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != MISSING;
+    }
+
+    /**
+     * The value stored under {@code key}, or {@link #MISSING}.
+     */
+    int get(int key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; values[slot] != MISSING; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Stores {@code value}, which must not be negative, under {@code key}.
+     */
+    void put(int key, int value) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != MISSING) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    /**
+     * Removes {@code key} and returns its value, or {@link #MISSING} if it was not there.
+     */
+    int remove(int key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; values[slot] != MISSING; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                int value = values[slot];
+                shiftBack(slot);
+                size--;
+                return value;
+            }
+        }
+        return MISSING;
+    }
+
+    void clear() {
+        Arrays.fill(values, MISSING);
+        size = 0;
+    }
+
+    // Moves later entries of the probe run into the freed slot where their home allows
+    private void shiftBack(int free) {
+        int mask = keys.length - 1;
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == MISSING) {
+                break;
+            }
+            int home = hash(keys[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - free) & mask)) {
+                keys[free] = keys[slot];
+                values[free] = values[slot];
+                free = slot;
+            }
+        }
+        values[free] = MISSING;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == MISSING) {
+                continue;
+            }
+            int slot = hash(oldKeys[i]) & mask;
+            while (values[slot] != MISSING) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    // Alarm IDs are trigger times modulo 2^31-1, so spread the low bits
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,93 @@
+package com.zuwad.alarm;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Expands weekly {@link LessonRule}s into the next few concrete alarms.
+ *
+ * Only the next {@code occurrences} lessons of each rule are expanded, so the number of
+ * armed alarms and the work per expansion depend on the number of rules, not on how far
+ * ahead the term runs. The caller expands again after alarms fire or the clock changes.
+ */
+public final class LessonRecurrence {
+    // Upper bound on weeks scanned for a rule whose lessons are all skipped
+    private static final int MAX_WEEKS_SCANNED = 53;
+
+    private LessonRecurrence() {
+    }
+
+    /**
+     * Returns the alarms of the next {@code occurrences} lessons of every rule that start
+     * after {@code afterMillis}, ordered by trigger time. Alarms at or before
+     * {@code afterMillis} are left out, and alarms at the same time are merged. Moved
+     * lessons are included wherever they land.
+     *
+     * {@code afterMillis} is usually now. Right after a delivery it is the latest delivered
+     * trigger time, which can be ahead of now when the coalescing window delivered early.
+     */
+    public static List<AlarmEntry> expand(Collection<LessonRule> rules, long afterMillis, int occurrences) {
+        List<AlarmEntry> alarms = new ArrayList<>();
+        Instant after = Instant.ofEpochMilli(afterMillis);
+        for (LessonRule rule : rules) {
+            expandRule(rule, after, occurrences, alarms);
+        }
+        alarms.sort(Comparator.comparingLong((AlarmEntry alarm) -> alarm.triggerAt)
+                .thenComparingLong(alarm -> alarm.toleranceMs));
+
+        // Lessons of different rules can share an alarm time, and with it an alarm ID.
+        // The strictest delivery class sorts first and is the one kept.
+        List<AlarmEntry> unique = new ArrayList<>(alarms.size());
+        for (AlarmEntry alarm : alarms) {
+            if (unique.isEmpty() || unique.get(unique.size() - 1).triggerAt != alarm.triggerAt) {
+                unique.add(alarm);
+            }
+        }
+        return unique;
+    }
+
+    private static void expandRule(LessonRule rule, Instant after, int occurrences, List<AlarmEntry> alarms) {
+        LocalDate today = after.atZone(rule.zone).toLocalDate();
+
+        // Regular lessons, starting with this week's in case it is still ahead
+        LocalDate date = today.with(TemporalAdjusters.previousOrSame(rule.day));
+        int found = 0;
+        for (int week = 0; week <= MAX_WEEKS_SCANNED && found < occurrences; week++, date = date.plusWeeks(1)) {
+            if (rule.exceptions.contains(date) || rule.postponements.containsKey(date)) {
+                continue;
+            }
+            ZonedDateTime lesson = ZonedDateTime.of(date, rule.time, rule.zone);
+            if (lesson.toInstant().isAfter(after)) {
+                addAlarms(rule, lesson, after, alarms);
+                found++;
+            }
+        }
+
+        // Moved lessons; there are only ever a handful
+        for (Map.Entry<LocalDate, LocalDateTime> move : rule.postponements.entrySet()) {
+            ZonedDateTime lesson = move.getValue().atZone(rule.zone);
+            if (lesson.toInstant().isAfter(after)) {
+                addAlarms(rule, lesson, after, alarms);
+            }
+        }
+    }
+
+    private static void addAlarms(LessonRule rule, ZonedDateTime lesson, Instant after, List<AlarmEntry> alarms) {
+        long lessonAt = lesson.toInstant().toEpochMilli();
+        for (int i = 0; i < rule.leadMinutes.length; i++) {
+            long triggerAt = lessonAt - rule.leadMinutes[i] * 60_000L;
+            if (triggerAt > after.toEpochMilli()) {
+                alarms.add(new AlarmEntry(AlarmIds.forTrigger(triggerAt), triggerAt,
+                        rule.title, rule.leadBodies[i], rule.leadToleranceMs[i]));
+            }
+        }
+    }
+}
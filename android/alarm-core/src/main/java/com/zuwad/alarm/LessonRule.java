@@ -0,0 +1,186 @@
+package com.zuwad.alarm;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A weekly lesson slot and the alarms wanted before each of its lessons.
+ *
+ * Times are wall-clock times in the rule's time zone (the server keeps lessons in Egypt
+ * time), so daylight saving changes and device time zone changes are resolved when the
+ * occurrences are expanded, not when the rule is stored.
+ *
+ * Single lessons can be skipped through {@link #exceptions} or moved through
+ * {@link #postponements}, both keyed by the regular lesson date. Entries are dropped by
+ * {@link #pruned} once they are in the past, so they do not pile up over a term.
+ *
+ * Each lead time can carry a delivery tolerance; see {@link AlarmEntry#toleranceMs}.
+ */
+public final class LessonRule {
+    public final DayOfWeek day;
+    public final LocalTime time;
+    public final ZoneId zone;
+    public final String title;
+
+    // Parallel arrays: one alarm per lead time, each with its own notification text and
+    // delivery tolerance
+    public final int[] leadMinutes;
+    public final String[] leadBodies;
+    public final long[] leadToleranceMs;
+
+    public final Set<LocalDate> exceptions;
+    public final Map<LocalDate, LocalDateTime> postponements;
+
+    public LessonRule(DayOfWeek day, LocalTime time, ZoneId zone, String title,
+                      int[] leadMinutes, String[] leadBodies, long[] leadToleranceMs,
+                      Set<LocalDate> exceptions, Map<LocalDate, LocalDateTime> postponements) {
+        if (leadMinutes.length != leadBodies.length || leadMinutes.length != leadToleranceMs.length) {
+            throw new IllegalArgumentException("Each lead time needs a body and a tolerance");
+        }
+        this.day = day;
+        this.time = time;
+        this.zone = zone;
+        this.title = title;
+        this.leadMinutes = leadMinutes;
+        this.leadBodies = leadBodies;
+        this.leadToleranceMs = leadToleranceMs;
+        this.exceptions = Collections.unmodifiableSet(exceptions);
+        this.postponements = Collections.unmodifiableMap(postponements);
+    }
+
+    /**
+     * Reads a rule in the channel format:
+     * {@code day} (1 Monday to 7 Sunday), {@code hour}, {@code minute}, {@code zone}
+     * (IANA ID), {@code title}, {@code leads} as a flat (minutes, body) list, optionally
+     * {@code lead_tolerances} with one tolerance in milliseconds per lead (0 if absent),
+     * {@code exceptions} as ISO dates and {@code postponements} as a flat
+     * (ISO date, ISO date-time) list.
+     */
+    public static LessonRule fromMap(Map<?, ?> map) {
+        List<?> leads = listOf(map.get("leads"));
+        int[] leadMinutes = new int[leads.size() / 2];
+        String[] leadBodies = new String[leadMinutes.length];
+        for (int i = 0; i < leadMinutes.length; i++) {
+            leadMinutes[i] = ((Number) leads.get(2 * i)).intValue();
+            leadBodies[i] = (String) leads.get(2 * i + 1);
+        }
+
+        List<?> tolerances = listOf(map.get("lead_tolerances"));
+        long[] leadToleranceMs = new long[leadMinutes.length];
+        for (int i = 0; i < leadToleranceMs.length && i < tolerances.size(); i++) {
+            leadToleranceMs[i] = ((Number) tolerances.get(i)).longValue();
+        }
+
+        Set<LocalDate> exceptions = new HashSet<>();
+        for (Object date : listOf(map.get("exceptions"))) {
+            exceptions.add(LocalDate.parse((String) date));
+        }
+
+        Map<LocalDate, LocalDateTime> postponements = new HashMap<>();
+        List<?> moves = listOf(map.get("postponements"));
+        for (int i = 0; i + 1 < moves.size(); i += 2) {
+            postponements.put(LocalDate.parse((String) moves.get(i)),
+                    LocalDateTime.parse((String) moves.get(i + 1)));
+        }
+
+        return new LessonRule(
+                DayOfWeek.of(((Number) map.get("day")).intValue()),
+                LocalTime.of(((Number) map.get("hour")).intValue(), ((Number) map.get("minute")).intValue()),
+                ZoneId.of((String) map.get("zone")),
+                (String) map.get("title"),
+                leadMinutes,
+                leadBodies,
+                leadToleranceMs,
+                exceptions,
+                postponements
+        );
+    }
+
+    /**
+     * Returns a copy of this rule with the lesson of {@code date} moved to {@code movedTo}.
+     */
+    public LessonRule withPostponement(LocalDate date, LocalDateTime movedTo) {
+        Map<LocalDate, LocalDateTime> moved = new HashMap<>(postponements);
+        moved.put(date, movedTo);
+        return new LessonRule(day, time, zone, title, leadMinutes, leadBodies, leadToleranceMs,
+                new HashSet<>(exceptions), moved);
+    }
+
+    /**
+     * Returns a copy of this rule without the exceptions and postponements that can no
+     * longer affect a lesson after {@code now}: those whose regular date is before today,
+     * and for postponements, whose new time has passed as well. Returns this rule if
+     * there are none.
+     */
+    public LessonRule pruned(Instant now) {
+        LocalDate today = now.atZone(zone).toLocalDate();
+        Set<LocalDate> keptExceptions = new HashSet<>();
+        for (LocalDate date : exceptions) {
+            if (!date.isBefore(today)) {
+                keptExceptions.add(date);
+            }
+        }
+        Map<LocalDate, LocalDateTime> keptPostponements = new HashMap<>();
+        for (Map.Entry<LocalDate, LocalDateTime> move : postponements.entrySet()) {
+            if (!move.getKey().isBefore(today) || move.getValue().atZone(zone).toInstant().isAfter(now)) {
+                keptPostponements.put(move.getKey(), move.getValue());
+            }
+        }
+        if (keptExceptions.size() == exceptions.size() && keptPostponements.size() == postponements.size()) {
+            return this;
+        }
+        return new LessonRule(day, time, zone, title, leadMinutes, leadBodies, leadToleranceMs,
+                keptExceptions, keptPostponements);
+    }
+
+    /**
+     * Writes the rule in the format read by {@link #fromMap}.
+     */
+    public Map<String, Object> toMap() {
+        List<Object> leads = new ArrayList<>(leadMinutes.length * 2);
+        List<Object> tolerances = new ArrayList<>(leadMinutes.length);
+        for (int i = 0; i < leadMinutes.length; i++) {
+            leads.add(leadMinutes[i]);
+            leads.add(leadBodies[i]);
+            tolerances.add(leadToleranceMs[i]);
+        }
+
+        List<Object> exceptionDates = new ArrayList<>(exceptions.size());
+        for (LocalDate date : exceptions) {
+            exceptionDates.add(date.toString());
+        }
+
+        List<Object> moves = new ArrayList<>(postponements.size() * 2);
+        for (Map.Entry<LocalDate, LocalDateTime> move : postponements.entrySet()) {
+            moves.add(move.getKey().toString());
+            moves.add(move.getValue().toString());
+        }
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("day", day.getValue());
+        map.put("hour", time.getHour());
+        map.put("minute", time.getMinute());
+        map.put("zone", zone.getId());
+        map.put("title", title);
+        map.put("leads", leads);
+        map.put("lead_tolerances", tolerances);
+        map.put("exceptions", exceptionDates);
+        map.put("postponements", moves);
+        return map;
+    }
+
+    private static List<?> listOf(Object value) {
+        return value instanceof List ? (List<?>) value : Collections.emptyList();
+    }
+}
@@ -0,0 +1,100 @@
+package com.zuwad.alarm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class AlarmQueueTest {
+    @Test
+    public void pollsInTriggerOrder() {
+        AlarmQueue queue = new AlarmQueue();
+        Random random = new Random(7);
+        long[] triggers = new long[500];
+        for (int i = 0; i < triggers.length; i++) {
+            triggers[i] = random.nextInt(1_000_000);
+            queue.add(i, triggers[i]);
+        }
+
+        long previous = Long.MIN_VALUE;
+        int polled = 0;
+        while (!queue.isEmpty()) {
+            long trigger = queue.peekTrigger();
+            assertTrue(trigger >= previous);
+            assertEquals(triggers[queue.peekId()], trigger);
+            previous = trigger;
+            queue.remove(queue.peekId());
+            polled++;
+        }
+        assertEquals(triggers.length, polled);
+    }
+
+    @Test
+    public void addingAQueuedAlarmMovesIt() {
+        AlarmQueue queue = new AlarmQueue();
+        queue.add(1, 100);
+        queue.add(2, 200);
+        queue.add(3, 300);
+
+        queue.add(3, 50);
+        assertEquals(3, queue.size());
+        assertEquals(3, queue.peekId());
+
+        queue.add(3, 400);
+        assertEquals(1, queue.peekId());
+        assertArrayEquals(new int[]{1, 2, 3}, queue.pollDue(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void removeKeepsTheRestOrdered() {
+        AlarmQueue queue = new AlarmQueue();
+        for (int i = 0; i < 100; i++) {
+            queue.add(i, 1000 - i);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            assertTrue(queue.remove(i));
+        }
+        assertFalse(queue.remove(0));
+        assertFalse(queue.contains(0));
+        assertTrue(queue.contains(1));
+        assertEquals(50, queue.size());
+
+        int[] due = queue.pollDue(Long.MAX_VALUE);
+        int[] expected = new int[50];
+        for (int i = 0; i < 50; i++) {
+            expected[i] = 99 - 2 * i;
+        }
+        assertArrayEquals(expected, due);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void pollDueStopsAtTime() {
+        AlarmQueue queue = new AlarmQueue();
+        queue.add(10, 300);
+        queue.add(11, 100);
+        queue.add(12, 200);
+
+        assertArrayEquals(new int[]{11, 12}, queue.pollDue(200));
+        assertEquals(1, queue.size());
+        assertEquals(0, queue.pollDue(299).length);
+        assertEquals(10, queue.peekId());
+    }
+
+    @Test
+    public void clearEmptiesTheIndex() {
+        AlarmQueue queue = new AlarmQueue();
+        queue.add(1, 100);
+        queue.add(2, 200);
+        queue.clear();
+
+        assertTrue(queue.isEmpty());
+        assertFalse(queue.contains(1));
+        queue.add(2, 50);
+        assertEquals(1, queue.size());
+        assertEquals(2, queue.peekId());
+    }
+}
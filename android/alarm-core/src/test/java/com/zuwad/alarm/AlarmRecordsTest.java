@@ -0,0 +1,64 @@
+package com.zuwad.alarm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class AlarmRecordsTest {
+    @Test
+    public void flattenAndParseRoundTrip() {
+        List<AlarmEntry> alarms = Arrays.asList(
+                new AlarmEntry(1, 1_700_000_000_000L, "منبه الحصة", "حان وقت الحصة"),
+                new AlarmEntry(2, 1_700_000_060_000L, "تذكير", null, 600_000));
+        List<Boolean> results = new ArrayList<>();
+
+        List<AlarmEntry> parsed = AlarmRecords.parse(AlarmRecords.flatten(alarms), results);
+
+        assertEquals(Arrays.asList(true, true), results);
+        assertEquals(2, parsed.size());
+        for (int i = 0; i < alarms.size(); i++) {
+            assertEquals(alarms.get(i).id, parsed.get(i).id);
+            assertTrue(alarms.get(i).sameAs(parsed.get(i)));
+        }
+    }
+
+    @Test
+    public void acceptsIntegersFromTheChannelCodec() {
+        // The standard codec sends small numbers as Integer
+        List<Object> records = Arrays.asList(5, 1000, "t", "b", 0);
+        List<AlarmEntry> parsed = AlarmRecords.parse(records, new ArrayList<>());
+
+        assertEquals(1, parsed.size());
+        assertEquals(1000L, parsed.get(0).triggerAt);
+        assertTrue(parsed.get(0).isCritical());
+    }
+
+    @Test
+    public void badRecordDoesNotFailTheRest() {
+        List<Object> records = Arrays.asList(
+                1, 1000L, "t", "b", 0L,
+                "not an id", 2000L, "t", "b", 0L,
+                3, 3000L, "t", "b", 0L);
+        List<Boolean> results = new ArrayList<>();
+
+        List<AlarmEntry> parsed = AlarmRecords.parse(records, results);
+
+        assertEquals(Arrays.asList(true, false, true), results);
+        assertEquals(2, parsed.size());
+        assertEquals(3, parsed.get(1).id);
+    }
+
+    @Test
+    public void ignoresTrailingPartialRecordAndNull() {
+        List<Object> records = Arrays.asList(1, 1000L, "t", "b", 0L, 2, 2000L);
+        List<Boolean> results = new ArrayList<>();
+
+        assertEquals(1, AlarmRecords.parse(records, results).size());
+        assertEquals(1, results.size());
+        assertTrue(AlarmRecords.parse(null, results).isEmpty());
+    }
+}
@@ -0,0 +1,90 @@
+package com.zuwad.alarm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class AlarmRegistryTest {
+    private static AlarmEntry alarm(int id, long triggerAt) {
+        return new AlarmEntry(id, triggerAt, "منبه الحصة", "حان وقت الحصة");
+    }
+
+    private static AlarmEntry reminder(int id, long triggerAt) {
+        return new AlarmEntry(id, triggerAt, "تذكير", "الحصة بعد قليل", 60_000);
+    }
+
+    @Test
+    public void diffFindsInsertsUpdatesAndDeletes() {
+        AlarmRegistry registry = new AlarmRegistry();
+        registry.put(alarm(1, 100));
+        registry.put(alarm(2, 200));
+        registry.put(alarm(3, 300));
+
+        AlarmRegistry.Diff diff = registry.diff(Arrays.asList(
+                alarm(1, 100),
+                alarm(2, 250),
+                new AlarmEntry(3, 300, "منبه الحصة", "نص جديد"),
+                alarm(4, 400)));
+
+        assertEquals(Arrays.asList(4), ids(diff.inserts));
+        assertEquals(Arrays.asList(2, 3), ids(diff.updates));
+        assertTrue(diff.deletes.isEmpty());
+        // The registry itself is untouched
+        assertEquals(200, registry.get(2).triggerAt);
+    }
+
+    @Test
+    public void diffAgainstEmptySetDeletesEverything() {
+        AlarmRegistry registry = new AlarmRegistry();
+        registry.put(alarm(1, 100));
+        registry.put(alarm(2, 200));
+
+        AlarmRegistry.Diff diff = registry.diff(Arrays.<AlarmEntry>asList());
+        assertEquals(2, diff.deletes.size());
+        assertTrue(diff.inserts.isEmpty());
+        assertTrue(diff.updates.isEmpty());
+    }
+
+    @Test
+    public void identicalSetHasEmptyDiff() {
+        AlarmRegistry registry = new AlarmRegistry();
+        registry.put(alarm(1, 100));
+        registry.put(reminder(2, 50));
+
+        assertTrue(registry.diff(Arrays.asList(reminder(2, 50), alarm(1, 100))).isEmpty());
+        // A different tolerance is an update
+        assertEquals(1, registry.diff(Arrays.asList(alarm(2, 50), alarm(1, 100))).updates.size());
+    }
+
+    @Test
+    public void peekSkipsRemovedAlarmsAndTracksCriticalOnes() {
+        AlarmRegistry registry = new AlarmRegistry();
+        registry.put(reminder(1, 100));
+        registry.put(alarm(2, 200));
+        registry.put(alarm(3, 300));
+
+        assertEquals(1, registry.peek().id);
+        assertEquals(2, registry.peekCritical().id);
+
+        registry.remove(2);
+        assertEquals(3, registry.peekCritical().id);
+
+        List<AlarmEntry> due = registry.pollDue(300);
+        assertEquals(Arrays.asList(1, 3), ids(due));
+        assertNull(registry.peek());
+        assertNull(registry.peekCritical());
+    }
+
+    private static List<Integer> ids(List<AlarmEntry> entries) {
+        Integer[] ids = new Integer[entries.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = entries.get(i).id;
+        }
+        Arrays.sort(ids);
+        return Arrays.asList(ids);
+    }
+}
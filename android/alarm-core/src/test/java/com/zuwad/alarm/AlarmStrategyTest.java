@@ -0,0 +1,48 @@
+package com.zuwad.alarm;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class AlarmStrategyTest {
+    private static final int LOLLIPOP = 21;
+    private static final int M = 23;
+    private static final int R = 30;
+    private static final int S = 31;
+    private static final int U = 34;
+
+    @Test
+    public void criticalAlarmsBeforeMarshmallowUseSetExact() {
+        assertEquals(AlarmStrategy.EXACT, AlarmStrategy.chooseCritical(LOLLIPOP, true, false));
+        assertEquals(AlarmStrategy.EXACT, AlarmStrategy.chooseCritical(LOLLIPOP, false, true));
+    }
+
+    @Test
+    public void criticalAlarmsUseAlarmClockInDoze() {
+        assertEquals(AlarmStrategy.EXACT_ALLOW_WHILE_IDLE, AlarmStrategy.chooseCritical(M, true, false));
+        assertEquals(AlarmStrategy.ALARM_CLOCK, AlarmStrategy.chooseCritical(R, true, true));
+        assertEquals(AlarmStrategy.ALARM_CLOCK, AlarmStrategy.chooseCritical(U, true, true));
+    }
+
+    @Test
+    public void criticalAlarmsNeedTheExactGrantFromAndroid12() {
+        assertEquals(AlarmStrategy.EXACT_ALLOW_WHILE_IDLE, AlarmStrategy.chooseCritical(S, true, false));
+        assertEquals(AlarmStrategy.ALARM_CLOCK, AlarmStrategy.chooseCritical(S, false, false));
+        // Below Android 12 the grant does not exist
+        assertEquals(AlarmStrategy.EXACT_ALLOW_WHILE_IDLE, AlarmStrategy.chooseCritical(R, false, false));
+    }
+
+    @Test
+    public void remindersUseAWindowUnlessIdle() {
+        assertEquals(AlarmStrategy.WINDOW, AlarmStrategy.chooseReminder(S, false));
+        assertEquals(AlarmStrategy.INEXACT_ALLOW_WHILE_IDLE, AlarmStrategy.chooseReminder(S, true));
+        assertEquals(AlarmStrategy.WINDOW, AlarmStrategy.chooseReminder(LOLLIPOP, true));
+    }
+
+    @Test
+    public void apiNamesMatchAlarmManager() {
+        assertEquals("setExactAndAllowWhileIdle", AlarmStrategy.EXACT_ALLOW_WHILE_IDLE.apiName);
+        assertEquals("setAlarmClock", AlarmStrategy.ALARM_CLOCK.apiName);
+        assertEquals("setAndAllowWhileIdle", AlarmStrategy.INEXACT_ALLOW_WHILE_IDLE.apiName);
+    }
+}
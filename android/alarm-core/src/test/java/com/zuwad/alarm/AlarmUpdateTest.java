@@ -0,0 +1,101 @@
+package com.zuwad.alarm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class AlarmUpdateTest {
+    private static Map<String, String> data(String... keysAndValues) {
+        Map<String, String> data = new HashMap<>();
+        data.put("type", AlarmUpdate.TYPE);
+        for (int i = 0; i + 1 < keysAndValues.length; i += 2) {
+            data.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return data;
+    }
+
+    @Test
+    public void recognisesAlarmUpdatesOnly() {
+        assertTrue(AlarmUpdate.isAlarmUpdate(data("op", "cancel")));
+        Map<String, String> chat = new HashMap<>();
+        chat.put("type", "chat_message");
+        assertFalse(AlarmUpdate.isAlarmUpdate(chat));
+        assertFalse(AlarmUpdate.isAlarmUpdate(new HashMap<>()));
+        assertFalse(AlarmUpdate.isAlarmUpdate(null));
+    }
+
+    @Test
+    public void parsesSchedule() {
+        AlarmUpdate update = AlarmUpdate.parse(data("op", "schedule", "id", "42",
+                "at", "1700000000000", "title", "منبه الحصة", "body", "حان وقت الحصة", "tol", "600000"));
+
+        assertEquals(AlarmUpdate.SCHEDULE, update.op);
+        AlarmEntry entry = update.toEntry();
+        assertEquals(42, entry.id);
+        assertEquals(1_700_000_000_000L, entry.triggerAt);
+        assertEquals("منبه الحصة", entry.title);
+        assertEquals(600_000L, entry.toleranceMs);
+    }
+
+    @Test
+    public void scheduleWithoutToleranceIsCritical() {
+        AlarmUpdate update = AlarmUpdate.parse(data("op", "schedule", "id", "1",
+                "at", "1000", "title", "t", "body", "b"));
+        assertTrue(update.toEntry().isCritical());
+    }
+
+    @Test
+    public void rescheduleKeepsTextWhenAbsent() {
+        AlarmUpdate update = AlarmUpdate.parse(data("op", "reschedule", "id", "7", "at", "5000"));
+
+        assertEquals(AlarmUpdate.RESCHEDULE, update.op);
+        assertEquals(7, update.alarmId);
+        assertEquals(5000L, update.triggerAt);
+        assertNull(update.title);
+        assertNull(update.body);
+    }
+
+    @Test
+    public void parsesPostpone() {
+        AlarmUpdate update = AlarmUpdate.parse(data("op", "postpone",
+                "from", "2026-03-09", "time", "18:00", "to", "2026-03-10T19:30"));
+
+        assertEquals(AlarmUpdate.POSTPONE, update.op);
+        assertEquals(LocalDate.of(2026, 3, 9), update.from);
+        assertEquals(LocalTime.of(18, 0), update.fromTime);
+        assertEquals(LocalDateTime.of(2026, 3, 10, 19, 30), update.to);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void postponeNeedsTheLessonTime() {
+        AlarmUpdate.parse(data("op", "postpone", "from", "2026-03-09", "to", "2026-03-10T19:30"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedDates() {
+        AlarmUpdate.parse(data("op", "postpone", "from", "9/3/2026", "time", "18:00", "to", "2026-03-10T19:30"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedNumbers() {
+        AlarmUpdate.parse(data("op", "cancel", "id", "forty-two"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMissingFields() {
+        AlarmUpdate.parse(data("op", "schedule", "id", "1", "at", "1000"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownOps() {
+        AlarmUpdate.parse(data("op", "snooze"));
+    }
+}
@@ -0,0 +1,48 @@
+package com.zuwad.alarm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class IntIntMapTest {
+    @Test
+    public void matchesHashMapUnderChurn() {
+        IntIntMap map = new IntIntMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 50_000; i++) {
+            // Keys a multiple of 1024 apart share their low bits, which stresses probing
+            int key = random.nextInt(4096) * 1024;
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                assertEquals(removed != null ? removed : IntIntMap.MISSING, map.remove(key));
+            } else {
+                expected.put(key, i);
+                map.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int key = 0; key < 4096 * 1024; key += 1024) {
+            Integer value = expected.get(key);
+            assertEquals(value != null ? value : IntIntMap.MISSING, map.get(key));
+        }
+    }
+
+    @Test
+    public void clearRemovesEverything() {
+        IntIntMap map = new IntIntMap();
+        for (int i = 0; i < 100; i++) {
+            map.put(-i, i);
+        }
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertEquals(IntIntMap.MISSING, map.get(-5));
+        map.put(-5, 1);
+        assertEquals(1, map.get(-5));
+    }
+}
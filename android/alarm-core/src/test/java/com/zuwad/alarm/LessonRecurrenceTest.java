@@ -0,0 +1,61 @@
+package com.zuwad.alarm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Test;
+
+public class LessonRecurrenceTest {
+    private static final ZoneId CAIRO = ZoneId.of("Africa/Cairo");
+    // Monday 2026-03-16 18:00 in Cairo
+    private static final long LESSON_AT = LocalDateTime.of(2026, 3, 16, 18, 0).atZone(CAIRO)
+            .toInstant().toEpochMilli();
+    private static final long WEEK_MS = 7 * 24 * 60 * 60 * 1000L;
+
+    private static final LessonRule RULE = new LessonRule(DayOfWeek.MONDAY, LocalTime.of(18, 0), CAIRO,
+            "الحصة", new int[]{0}, new String[]{"حان وقت الحصة"}, new long[]{0},
+            new HashSet<>(), new HashMap<>());
+
+    @Test
+    public void expandSkipsLessonsThatAlreadyStarted() {
+        List<AlarmEntry> alarms = LessonRecurrence.expand(Collections.singletonList(RULE), LESSON_AT + 1, 2);
+
+        assertEquals(2, alarms.size());
+        assertEquals(LESSON_AT + WEEK_MS, alarms.get(0).triggerAt);
+        assertEquals(LESSON_AT + 2 * WEEK_MS, alarms.get(1).triggerAt);
+    }
+
+    @Test
+    public void earlyCoalescedDeliveryIsNotArmedAgain() {
+        // The chain fires 50 s early for another alarm and the coalescing window pulls the
+        // lesson into the same wakeup
+        long now = LESSON_AT - 50_000L;
+        AlarmRegistry registry = new AlarmRegistry();
+        for (AlarmEntry alarm : LessonRecurrence.expand(Collections.singletonList(RULE), now - 60_000L, 2)) {
+            registry.put(alarm);
+        }
+        List<AlarmEntry> delivered = registry.pollDue(now + 61_000L);
+        assertEquals(1, delivered.size());
+        long deliveredThrough = delivered.get(0).triggerAt;
+        assertEquals(LESSON_AT, deliveredThrough);
+
+        // Expanding from the clock alone would arm the lesson a second time
+        List<AlarmEntry> fromNow = LessonRecurrence.expand(Collections.singletonList(RULE), now, 2);
+        assertEquals(LESSON_AT, fromNow.get(0).triggerAt);
+
+        List<AlarmEntry> alarms = LessonRecurrence.expand(Collections.singletonList(RULE),
+                Math.max(now, deliveredThrough), 2);
+        for (AlarmEntry alarm : alarms) {
+            assertTrue(alarm.triggerAt > deliveredThrough);
+        }
+        assertEquals(LESSON_AT + WEEK_MS, alarms.get(0).triggerAt);
+    }
+}
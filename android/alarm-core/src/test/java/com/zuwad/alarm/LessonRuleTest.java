@@ -0,0 +1,60 @@
+package com.zuwad.alarm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+
+public class LessonRuleTest {
+    private static final ZoneId CAIRO = ZoneId.of("Africa/Cairo");
+    // Wednesday 2026-03-11 12:00 in Cairo
+    private static final Instant NOW = LocalDateTime.of(2026, 3, 11, 12, 0).atZone(CAIRO).toInstant();
+
+    private static LessonRule rule(Set<LocalDate> exceptions, Map<LocalDate, LocalDateTime> postponements) {
+        return new LessonRule(DayOfWeek.MONDAY, LocalTime.of(18, 0), CAIRO, "الحصة",
+                new int[]{15}, new String[]{"الحصة بعد ربع ساعة"}, new long[]{0},
+                exceptions, postponements);
+    }
+
+    @Test
+    public void prunedDropsPastExceptionsAndPostponements() {
+        Set<LocalDate> exceptions = new HashSet<>();
+        exceptions.add(LocalDate.of(2026, 3, 2));
+        exceptions.add(LocalDate.of(2026, 3, 16));
+        Map<LocalDate, LocalDateTime> postponements = new HashMap<>();
+        // Moved lesson already held
+        postponements.put(LocalDate.of(2026, 2, 23), LocalDateTime.of(2026, 2, 24, 18, 0));
+        // Regular date passed, moved lesson still ahead
+        postponements.put(LocalDate.of(2026, 3, 9), LocalDateTime.of(2026, 3, 12, 18, 0));
+        // Still ahead
+        postponements.put(LocalDate.of(2026, 3, 23), LocalDateTime.of(2026, 3, 24, 18, 0));
+
+        LessonRule pruned = rule(exceptions, postponements).pruned(NOW);
+
+        assertEquals(1, pruned.exceptions.size());
+        assertTrue(pruned.exceptions.contains(LocalDate.of(2026, 3, 16)));
+        assertEquals(2, pruned.postponements.size());
+        assertTrue(pruned.postponements.containsKey(LocalDate.of(2026, 3, 9)));
+        assertTrue(pruned.postponements.containsKey(LocalDate.of(2026, 3, 23)));
+    }
+
+    @Test
+    public void prunedReturnsTheSameRuleWhenNothingIsPast() {
+        Set<LocalDate> exceptions = new HashSet<>();
+        exceptions.add(LocalDate.of(2026, 3, 11));
+        LessonRule rule = rule(exceptions, new HashMap<>());
+
+        assertSame(rule, rule.pruned(NOW));
+    }
+}
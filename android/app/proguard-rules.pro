@@ -29,3 +29,21 @@
 -keep class io.livekit.android.room.** { *; }
 -keep class io.livekit.android.room.participant.** { *; }
 
+# Flutter's embedding references Play Core for deferred components, which the app does not use
+-dontwarn com.google.android.play.core.**
+
+# Keep line numbers for Crashlytics; the mapping file is uploaded by its Gradle plugin
+-keepattributes SourceFile,LineNumberTable
+-renamesourcefileattribute SourceFile
+
+# Lesson alarm components. AlarmManager PendingIntents and persisted jobs name these
+# classes and outlive an app update, so the names must not change between releases.
+-keep class com.zuwad.MainActivity
+-keep class com.zuwad.AlarmReceiver
+-keep class com.zuwad.AlarmBootReceiver
+-keep class com.zuwad.AlarmForegroundService
+-keep class com.zuwad.ScheduleRefreshJob
+
+# The com.zuwad/* platform channels need no rules: handlers are registered as objects,
+# method names and argument keys are strings, and StandardMessageCodec only sees
+# framework types. Dart entrypoints are kept by @pragma('vm:entry-point').
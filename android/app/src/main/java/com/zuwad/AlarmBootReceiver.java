@@ -0,0 +1,78 @@
+package com.zuwad;
+
+import android.app.AlarmManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Re-arms native alarms from {@link AlarmStore} after a reboot or an app update.
+ *
+ * AlarmManager drops every PendingIntent in both cases. This runs without starting a
+ * FlutterEngine, so alarms are restored even if the user never opens the app.
+ *
+ * Weekly lesson rules are expanded again here as well, and on clock and time zone
+ * changes, since either can move which lessons are next.
+ *
+ * Also receives the exact alarm permission being granted, which lets the chained alarm
+ * switch back to an exact API.
+ */
+public class AlarmBootReceiver extends BroadcastReceiver {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (AlarmManager.ACTION_SCHEDULE_EXACT_ALARM_PERMISSION_STATE_CHANGED.equals(action)) {
+            Context appContext = context.getApplicationContext();
+            PendingResult pendingResult = goAsync();
+            AlarmExecutor.execute(() -> {
+                try {
+                    AlarmEvents.checkExactAlarmPermission(appContext);
+                } catch (Exception e) {
+                    android.util.Log.e("AlarmBootReceiver", "Error handling permission change", e);
+                } finally {
+                    pendingResult.finish();
+                }
+            });
+            return;
+        }
+
+        if (Intent.ACTION_TIME_CHANGED.equals(action) || Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+            Context appContext = context.getApplicationContext();
+            PendingResult pendingResult = goAsync();
+            AlarmExecutor.execute(() -> {
+                try {
+                    RecurrenceScheduler.refresh(appContext);
+                } catch (Exception e) {
+                    android.util.Log.e("AlarmBootReceiver", "Error expanding lesson rules", e);
+                } finally {
+                    pendingResult.finish();
+                }
+            });
+            return;
+        }
+
+        if (!Intent.ACTION_BOOT_COMPLETED.equals(action)
+                && !Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)
+                && !"android.intent.action.QUICKBOOT_POWERON".equals(action)) {
+            return;
+        }
+
+        // Re-arm on the alarm thread so the boot broadcast is not held up
+        Context appContext = context.getApplicationContext();
+        PendingResult pendingResult = goAsync();
+        AlarmExecutor.execute(() -> {
+            try {
+                long start = android.os.SystemClock.elapsedRealtime();
+                int rearmed = NativeAlarmScheduler.rearmFromStore(appContext);
+                RecurrenceScheduler.refresh(appContext);
+                AlarmTrace.record(AlarmTrace.BOOT_REARM, rearmed,
+                        android.os.SystemClock.elapsedRealtime() - start);
+            } catch (Exception e) {
+                android.util.Log.e("AlarmBootReceiver", "Error re-arming alarms", e);
+            } finally {
+                AlarmTrace.persist(appContext);
+                pendingResult.finish();
+            }
+        });
+    }
+}
@@ -0,0 +1,26 @@
+package com.zuwad;
+
+import android.content.Context;
+import io.flutter.embedding.engine.FlutterEngineGroup;
+
+/**
+ * The {@link FlutterEngineGroup} that engines started without an activity come from:
+ * the warm engine of {@link AlarmEngineWarmer} and the headless engine of
+ * {@link ScheduleRefreshJob}.
+ *
+ * While one engine of the group is running, the next one is spawned from it and shares
+ * its Dart VM, snapshot and assets, so it starts in a fraction of a cold start's time and
+ * memory. Main thread only.
+ */
+final class AlarmEngineGroup {
+    private static FlutterEngineGroup group;
+
+    private AlarmEngineGroup() {}
+
+    static FlutterEngineGroup get(Context context) {
+        if (group == null) {
+            group = new FlutterEngineGroup(context.getApplicationContext());
+        }
+        return group;
+    }
+}
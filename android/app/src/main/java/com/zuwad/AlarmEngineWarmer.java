@@ -0,0 +1,143 @@
+package com.zuwad;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import io.flutter.embedding.engine.FlutterEngine;
+import io.flutter.embedding.engine.FlutterEngineCache;
+import io.flutter.embedding.engine.dart.DartExecutor;
+
+/**
+ * Starts the Flutter engine ahead of a lesson alarm so that tapping the notification
+ * attaches {@link MainActivity} to a running engine instead of cold-starting Dart.
+ *
+ * The engine is warmed when the foreground lead window opens, so only when that window is
+ * enabled; see {@link AlarmPreferences#getForegroundLeadMs}. Delivering an alarm does not
+ * warm it, since that would start the main process on every alarm. If the app is not
+ * opened within {@link #WARM_TTL_MS} the engine is destroyed, so it does not stay resident
+ * between lessons.
+ *
+ * The window opens in the {@code :alarm} process, which never runs Flutter; there the
+ * request is handed to {@link AlarmWarmUpReceiver} in the main process, where the activity
+ * attaches.
+ */
+final class AlarmEngineWarmer {
+    static final String ENGINE_ID = "zuwad_alarm_engine";
+
+    // How long an unclaimed warm engine is kept before it is destroyed
+    private static final long WARM_TTL_MS = 20 * 60 * 1000L;
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Runnable releaseTask = AlarmEngineWarmer::release;
+
+    // Only touched on the main thread
+    private static boolean claimed;
+    private static boolean hostAttached;
+
+    private AlarmEngineWarmer() {}
+
+    /**
+     * Creates the cached engine if needed and extends its lifetime. Safe to call from any thread.
+     */
+    static void warmUp(Context context) {
+        Context appContext = context.getApplicationContext();
+        if (AlarmProcess.isAlarmProcess(appContext)) {
+            // Not worth starting the main process for on a device that would not keep it
+            if (!isLowRamDevice(appContext)) {
+                appContext.sendBroadcast(new Intent(appContext, AlarmWarmUpReceiver.class));
+            }
+            return;
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            warmUpOnMain(appContext);
+        } else {
+            mainHandler.post(() -> warmUpOnMain(appContext));
+        }
+    }
+
+    private static void warmUpOnMain(Context context) {
+        // The app is already open with its own engine, or a warm engine is in use
+        if (hostAttached || claimed) {
+            return;
+        }
+
+        if (!FlutterEngineCache.getInstance().contains(ENGINE_ID)) {
+            if (isLowRamDevice(context)) {
+                // A second resident engine costs more than the cold start saves
+                return;
+            }
+
+            try {
+                // From the shared group, so it shares the VM with a running refresh engine
+                FlutterEngine engine = AlarmEngineGroup.get(context)
+                        .createAndRunEngine(context, DartExecutor.DartEntrypoint.createDefault());
+                engine.addEngineLifecycleListener(new FlutterEngine.EngineLifecycleListener() {
+                    @Override
+                    public void onPreEngineRestart() {}
+
+                    @Override
+                    public void onEngineWillDestroy() {
+                        onEngineDestroyed();
+                    }
+                });
+                FlutterEngineCache.getInstance().put(ENGINE_ID, engine);
+                AlarmTrace.record(AlarmTrace.ENGINE_WARM, 0);
+            } catch (Exception e) {
+                android.util.Log.e("AlarmEngineWarmer", "Error warming engine", e);
+                return;
+            }
+        }
+
+        mainHandler.removeCallbacks(releaseTask);
+        mainHandler.postDelayed(releaseTask, WARM_TTL_MS);
+    }
+
+    /**
+     * Hands the warm engine to the activity being created.
+     * Returns its cache ID, or null if the activity should create its own engine.
+     */
+    static String claim() {
+        hostAttached = true;
+        if (claimed || !FlutterEngineCache.getInstance().contains(ENGINE_ID)) {
+            return null;
+        }
+        claimed = true;
+        mainHandler.removeCallbacks(releaseTask);
+        return ENGINE_ID;
+    }
+
+    /**
+     * Called when the activity goes away. A claimed engine is destroyed with it.
+     */
+    static void onHostDestroyed() {
+        hostAttached = false;
+    }
+
+    /**
+     * Destroys the warm engine if the app never attached to it.
+     */
+    static void release() {
+        mainHandler.removeCallbacks(releaseTask);
+        if (claimed) {
+            return;
+        }
+        FlutterEngine engine = FlutterEngineCache.getInstance().get(ENGINE_ID);
+        if (engine != null) {
+            engine.destroy();
+        }
+    }
+
+    private static boolean isLowRamDevice(Context context) {
+        ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        return activityManager != null && activityManager.isLowRamDevice();
+    }
+
+    private static void onEngineDestroyed() {
+        FlutterEngineCache.getInstance().remove(ENGINE_ID);
+        claimed = false;
+        AlarmTrace.record(AlarmTrace.ENGINE_RELEASE, 0);
+    }
+}
@@ -0,0 +1,171 @@
+package com.zuwad;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import io.flutter.plugin.common.EventChannel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pushes alarm lifecycle events to Dart over the alarm events channel: an alarm fired,
+ * was dismissed with the "إيقاف" action, was moved to a new time, the exact alarm
+ * permission changed, or the server changed the alarms through a push message.
+ *
+ * Alarms fire in the alarm process, where Dart never runs. Events raised without a
+ * listener are queued in {@link AlarmStore} and replayed in order once Dart listens.
+ * Events are dispatched on the alarm thread, which keeps them ordered against the
+ * replay; the sink itself is only used on the main thread.
+ */
+final class AlarmEvents implements EventChannel.StreamHandler {
+    static final int FIRED = 1;
+    static final int DISMISSED = 2;
+    static final int RESCHEDULED = 3;
+    static final int PERMISSION_CHANGED = 4;
+    static final int REMOTE_UPDATE = 5;
+
+    private static final String[] EVENT_NAMES = {
+            "?", "fired", "dismissed", "rescheduled", "permission_changed", "remote_update"};
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Attached Dart listener, if any; written on the main thread
+    private static volatile EventChannel.EventSink sink;
+
+    private final Context context;
+    private EventChannel.EventSink listener;
+
+    /**
+     * One alarm event. {@code value} is the trigger time for fired and rescheduled events,
+     * and for remote updates that armed an alarm (0 otherwise), and 1 or 0 for whether
+     * exact alarms are allowed for permission events.
+     */
+    static final class Event {
+        final int type;
+        final int alarmId;
+        final long time;
+        final long value;
+
+        Event(int type, int alarmId, long time, long value) {
+            this.type = type;
+            this.alarmId = alarmId;
+            this.time = time;
+            this.value = value;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("event", type > 0 && type < EVENT_NAMES.length ? EVENT_NAMES[type] : EVENT_NAMES[0]);
+            map.put("alarm_id", alarmId);
+            map.put("time", time);
+            map.put("value", value);
+            return map;
+        }
+    }
+
+    AlarmEvents(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Raises an event from any thread.
+     */
+    static void post(Context context, int type, int alarmId, long value) {
+        Context appContext = context.getApplicationContext();
+        Event event = new Event(type, alarmId, System.currentTimeMillis(), value);
+        AlarmExecutor.execute(() -> dispatch(appContext, event));
+    }
+
+    // Runs on the alarm thread
+    private static void dispatch(Context context, Event event) {
+        EventChannel.EventSink target = sink;
+        if (target == null) {
+            AlarmStore.getInstance(context).addEvent(event);
+            return;
+        }
+        mainHandler.post(() -> {
+            if (sink == target) {
+                target.success(event.toMap());
+            } else {
+                // The listener went away in the meantime
+                AlarmExecutor.execute(() -> dispatch(context, event));
+            }
+        });
+    }
+
+    @Override
+    public void onListen(Object arguments, EventChannel.EventSink events) {
+        listener = events;
+        sink = events;
+        AlarmExecutor.execute(() -> replayPending(context));
+    }
+
+    /**
+     * Sends the queued events to the attached listener, if any. Runs on the alarm thread.
+     */
+    static void replayPending(Context context) {
+        EventChannel.EventSink target = sink;
+        if (target == null) {
+            return;
+        }
+        List<Event> pending = AlarmStore.getInstance(context).takeEvents();
+        if (pending.isEmpty()) {
+            return;
+        }
+        mainHandler.post(() -> {
+            for (Event event : pending) {
+                if (sink == target) {
+                    target.success(event.toMap());
+                } else {
+                    AlarmExecutor.execute(() -> dispatch(context, event));
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onCancel(Object arguments) {
+        detach();
+    }
+
+    /**
+     * Stops sending to this handler's listener, e.g. when its engine goes away without
+     * Dart cancelling the subscription. Later events are queued for replay.
+     */
+    void detach() {
+        if (sink == listener) {
+            sink = null;
+        }
+        listener = null;
+    }
+
+    /**
+     * Compares the exact alarm permission with the last known state. When it changed,
+     * raises a permission event and re-arms the chained alarm so it uses the API the
+     * permission now allows. Runs on the alarm thread.
+     */
+    static void checkExactAlarmPermission(Context context) {
+        boolean allowed = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+            allowed = alarmManager.canScheduleExactAlarms();
+        }
+
+        int previous = AlarmPreferences.getExactAlarmsAllowed(context);
+        int current = allowed ? 1 : 0;
+        if (previous == current) {
+            return;
+        }
+        AlarmPreferences.setExactAlarmsAllowed(context, current);
+        if (previous == AlarmPreferences.UNKNOWN) {
+            // First check; nothing changed as far as anyone was told
+            return;
+        }
+
+        NativeAlarmScheduler.rearm(context);
+        post(context, PERMISSION_CHANGED, 0, current);
+    }
+}
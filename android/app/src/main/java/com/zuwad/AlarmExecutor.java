@@ -0,0 +1,32 @@
+package com.zuwad;
+
+import android.os.Process;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Single background thread for alarm delivery and re-arming work.
+ *
+ * Receivers hand their work here after calling goAsync(), so onReceive returns right
+ * away and slow devices cannot trip a receiver ANR. One thread keeps the work ordered.
+ */
+final class AlarmExecutor {
+    private static ExecutorService executor;
+
+    private AlarmExecutor() {
+    }
+
+    static synchronized void execute(Runnable task) {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_FOREGROUND);
+                    runnable.run();
+                }, "zuwad-alarm");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        executor.execute(task);
+    }
+}
@@ -5,38 +5,144 @@ import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
+import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
 import android.os.IBinder;
 import androidx.core.app.NotificationCompat;
 import android.content.pm.ServiceInfo;
+import com.zuwad.alarm.AlarmEntry;
 
+/**
+ * Ongoing notification that keeps the process ready shortly before a lesson alarm.
+ *
+ * The service is not kept running all day. {@link NativeAlarmScheduler} starts it once the
+ * next armed alarm is within the configured lead window and stops it after that alarm
+ * fires or is cancelled, so nothing stays resident between lessons.
+ *
+ * The notification counts down to that alarm with the system chronometer, so the
+ * countdown stays live without wakeups, and is only posted again when the next alarm
+ * changes.
+ *
+ * The service runs in the {@code :alarm} process. The main process, which also arms
+ * alarms, cannot see whether it is running, so from there the alarm to count down to is
+ * passed in the start intent, and only a window it started itself is stopped from there.
+ */
 public class AlarmForegroundService extends Service {
     private static final String CHANNEL_ID = "alarm_foreground_channel";
     private static final int NOTIFICATION_ID = 9999;
 
+    private static final String EXTRA_ALARM_ID = "alarm_id";
+    private static final String EXTRA_TRIGGER_AT = "trigger_at";
+    private static final String EXTRA_TITLE = "title";
+    private static final String EXTRA_BODY = "body";
+
+    // Whether the service is running in the alarm process; whether it was last asked to
+    // run from this process in the main one
+    private static volatile boolean running;
+    // Alarm the notification counts down to
+    private static volatile AlarmEntry shownAlarm;
+
+    /**
+     * Starts the service for the lead window before {@code next}, or points the countdown
+     * at {@code next} if the service is already running.
+     */
+    static void startWindow(Context context, AlarmEntry next) {
+        AlarmEntry shown = shownAlarm;
+        if (shown != null && shown.sameAs(next) && running) {
+            return;
+        }
+        shownAlarm = next;
+        if (running && AlarmProcess.isAlarmProcess(context)) {
+            NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+            if (manager != null) {
+                manager.notify(NOTIFICATION_ID, createNotification(context, next));
+            }
+            return;
+        }
+        if (!running) {
+            AlarmTrace.record(AlarmTrace.WINDOW_START, 0);
+        }
+        running = true;
+
+        Intent serviceIntent = new Intent(context, AlarmForegroundService.class);
+        if (next != null) {
+            serviceIntent.putExtra(EXTRA_ALARM_ID, next.id)
+                    .putExtra(EXTRA_TRIGGER_AT, next.triggerAt)
+                    .putExtra(EXTRA_TITLE, next.title)
+                    .putExtra(EXTRA_BODY, next.body);
+        }
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                context.startForegroundService(serviceIntent);
+            } else {
+                context.startService(serviceIntent);
+            }
+        } catch (Exception e) {
+            // Background start restrictions; the alarm itself is still armed
+            running = false;
+            android.util.Log.e("AlarmForegroundService", "Error starting service", e);
+        }
+    }
+
+    /**
+     * Stops the service once there is no alarm inside the lead window. Does nothing unless
+     * a window was started from this process. A window the alarm process started is
+     * stopped there, when the main process's store change reaches it.
+     */
+    static void stopWindow(Context context) {
+        if (!running) {
+            return;
+        }
+        AlarmTrace.record(AlarmTrace.WINDOW_STOP, 0);
+        running = false;
+        shownAlarm = null;
+        context.stopService(new Intent(context, AlarmForegroundService.class));
+    }
+
     @Override
     public void onCreate() {
         super.onCreate();
+        running = true;
         createNotificationChannel();
 
+        // An alarm is close; start Dart now so opening the app from it is instant,
+        // and have the sound ready to play
+        AlarmEngineWarmer.warmUp(this);
+        AlarmPlayer.prepare(this);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null && intent.hasExtra(EXTRA_TRIGGER_AT)) {
+            shownAlarm = new AlarmEntry(intent.getIntExtra(EXTRA_ALARM_ID, 0),
+                    intent.getLongExtra(EXTRA_TRIGGER_AT, 0),
+                    intent.getStringExtra(EXTRA_TITLE), intent.getStringExtra(EXTRA_BODY));
+        }
+        // Called for every start, which also points the countdown at the new alarm
+        Notification notification = createNotification(this, shownAlarm);
+
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
             // Android 14+ (API 34+) requires specifying service type
-            startForeground(NOTIFICATION_ID, createNotification(),
+            startForeground(NOTIFICATION_ID, notification,
                     ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC | ServiceInfo.FOREGROUND_SERVICE_TYPE_SPECIAL_USE);
         } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
             // Android 11+ (API 30+)
-            startForeground(NOTIFICATION_ID, createNotification(), ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+            startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
         } else {
             // Android 10 and below
-            startForeground(NOTIFICATION_ID, createNotification());
+            startForeground(NOTIFICATION_ID, notification);
         }
+
+        // Started again by the scheduler for the next window if needed
+        return START_NOT_STICKY;
     }
 
     @Override
-    public int onStartCommand(Intent intent, int flags, int startId) {
-        // Keep service alive
-        return START_STICKY;
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Also runs while no activity is around to receive it
+        MemoryPressureMonitor.shed(level);
     }
 
     @Override
@@ -60,36 +166,61 @@ public class AlarmForegroundService extends Service {
         }
     }
 
-    private Notification createNotification() {
-        Intent notificationIntent = new Intent(this, MainActivity.class);
+    /**
+     * Builds the ongoing notification, counting down to {@code next} if it is known.
+     */
+    private static Notification createNotification(Context context, AlarmEntry next) {
+        Intent notificationIntent = new Intent(context, MainActivity.class);
         PendingIntent pendingIntent = PendingIntent.getActivity(
-                this,
+                context,
                 0,
                 notificationIntent,
                 PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
         );
 
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
                 .setContentTitle("منبهات الحصة")
                 .setContentText("المنبهات نشطة في الخلفية")
                 .setSmallIcon(R.mipmap.launcher_icon)
                 .setContentIntent(pendingIntent)
                 .setOngoing(true)
+                .setOnlyAlertOnce(true)
                 .setPriority(NotificationCompat.PRIORITY_LOW)
                 .setCategory(NotificationCompat.CATEGORY_SERVICE);
 
+        if (next != null) {
+            builder.setContentText(lessonLine(next))
+                    .setWhen(next.triggerAt)
+                    .setShowWhen(true);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                // Rendered by SystemUI, no updates needed while it counts down
+                builder.setUsesChronometer(true)
+                        .setChronometerCountDown(true);
+            }
+            // Older versions cannot count down and show the alarm time instead
+        }
+
         return builder.build();
     }
 
+    /**
+     * First line of the alarm body, which names the lesson and the teacher.
+     */
+    private static String lessonLine(AlarmEntry alarm) {
+        String body = alarm.body != null ? alarm.body : "";
+        int end = body.indexOf('\n');
+        String line = end >= 0 ? body.substring(0, end) : body;
+        if (line.isEmpty()) {
+            return alarm.title != null ? alarm.title : "";
+        }
+        return line;
+    }
+
     @Override
     public void onDestroy() {
+        running = false;
+        shownAlarm = null;
+        AlarmPlayer.release();
         super.onDestroy();
-        // Restart service if killed
-        Intent restartIntent = new Intent(getApplicationContext(), AlarmForegroundService.class);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            startForegroundService(restartIntent);
-        } else {
-            startService(restartIntent);
-        }
     }
 }
@@ -0,0 +1,96 @@
+package com.zuwad;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import com.google.firebase.messaging.RemoteMessage;
+import com.zuwad.alarm.AlarmUpdate;
+import io.flutter.plugins.firebase.messaging.FlutterFirebaseMessagingReceiver;
+import java.util.Map;
+
+/**
+ * Receives FCM messages in place of the firebase_messaging plugin's receiver, which
+ * starts a background Dart isolate for every data message while the app is closed.
+ *
+ * Alarm updates (see {@link AlarmUpdate}) are applied here through
+ * {@link NativeAlarmScheduler} or {@link RecurrenceScheduler}, so a postponed lesson is
+ * re-armed without starting Flutter. Dart is told with a remote update event, queued
+ * until it next listens; see {@link AlarmEvents}. Every other message goes to the plugin
+ * unchanged.
+ *
+ * While lesson rules are set, the rules own the armed alarms: updates by alarm ID only
+ * last until the rules are expanded again, so the server sends postponements instead.
+ */
+public class AlarmMessageReceiver extends FlutterFirebaseMessagingReceiver {
+    private static final String TAG = "AlarmMessageReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Bundle extras = intent.getExtras();
+        RemoteMessage message = extras != null ? new RemoteMessage(extras) : null;
+        if (message == null || !AlarmUpdate.isAlarmUpdate(message.getData())) {
+            super.onReceive(context, intent);
+            return;
+        }
+
+        Context appContext = context.getApplicationContext();
+        PendingResult pendingResult = goAsync();
+        AlarmExecutor.execute(() -> {
+            try {
+                handle(appContext, message);
+            } finally {
+                pendingResult.finish();
+            }
+        });
+    }
+
+    /**
+     * Applies {@code message} if it is an alarm update. Returns false for other messages
+     * and for updates that could not be applied. Runs on the alarm thread.
+     */
+    static boolean handle(Context context, RemoteMessage message) {
+        Map<String, String> data = message.getData();
+        if (!AlarmUpdate.isAlarmUpdate(data)) {
+            return false;
+        }
+
+        AlarmUpdate update;
+        try {
+            update = AlarmUpdate.parse(data);
+        } catch (IllegalArgumentException e) {
+            android.util.Log.e(TAG, "Ignoring malformed alarm update", e);
+            return false;
+        }
+
+        boolean applied;
+        try {
+            applied = apply(context, update);
+        } catch (RuntimeException e) {
+            android.util.Log.e(TAG, "Error applying alarm update", e);
+            return false;
+        }
+        if (applied) {
+            AlarmEvents.post(context, AlarmEvents.REMOTE_UPDATE, update.alarmId, update.triggerAt);
+        }
+        return applied;
+    }
+
+    private static boolean apply(Context context, AlarmUpdate update) {
+        switch (update.op) {
+            case AlarmUpdate.SCHEDULE:
+                NativeAlarmScheduler.schedule(context, update.alarmId, update.triggerAt,
+                        update.title, update.body, update.toleranceMs);
+                return true;
+            case AlarmUpdate.CANCEL:
+                NativeAlarmScheduler.cancel(context, update.alarmId);
+                return true;
+            case AlarmUpdate.RESCHEDULE:
+                return NativeAlarmScheduler.reschedule(context, update.alarmId, update.triggerAt,
+                        update.title, update.body);
+            case AlarmUpdate.POSTPONE:
+                return RecurrenceScheduler.postpone(context, update.from, update.fromTime, update.to);
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package com.zuwad;
+
+import android.content.Context;
+import android.os.Build;
+import android.util.AtomicFile;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONObject;
+
+/**
+ * Delivery metrics for the native alarm path: how late each alarm fired relative to its
+ * requested time, how long the receiver took to post the notification, and which
+ * AlarmManager API armed it.
+ *
+ * Everything lives in one preallocated {@code long[]} of fixed-bucket histograms and
+ * counters, so recording an event does not allocate. Alarms fire in the alarm process
+ * and are usually armed from the main one, so the block is persisted to a small file once
+ * per wakeup and whenever the armed API changes. Both processes record into it, so each
+ * write merges what this process recorded since its last write into the file under a
+ * file lock, then tells the other process to reload it; see
+ * {@link AlarmProcess#notifyMetrics}.
+ */
+final class AlarmMetrics {
+    private static final String TAG = "AlarmMetrics";
+    private static final String FILE_NAME = "alarm_metrics.bin";
+    private static final String LOCK_FILE_NAME = "alarm_metrics.lock";
+    private static final String EXPORT_FILE_NAME = "alarm_metrics.json";
+    private static final int FORMAT_VERSION = 2;
+
+    static final int API_EXACT_ALLOW_WHILE_IDLE = 0;
+    static final int API_ALARM_CLOCK = 1;
+    static final int API_EXACT = 2;
+    static final int API_WINDOW = 3;
+    static final int API_INEXACT_ALLOW_WHILE_IDLE = 4;
+    static final int API_UNKNOWN = 5;
+    private static final String[] API_NAMES = {
+            "setExactAndAllowWhileIdle", "setAlarmClock", "setExact", "setWindow",
+            "setAndAllowWhileIdle", "unknown"};
+    private static final int API_COUNT = API_NAMES.length;
+
+    // Upper bounds (exclusive, in ms) of the histogram buckets; the last one is open
+    private static final long[] BUCKET_BOUNDS_MS = {
+            10, 50, 100, 250, 500, 1000, 2000, 5000, 10000, 30000, 60000, 300000, 900000, Long.MAX_VALUE};
+    private static final int BUCKET_COUNT = BUCKET_BOUNDS_MS.length;
+
+    // Each histogram is its bucket counts followed by the sum and the max of the samples
+    private static final int HISTOGRAM_SLOTS = BUCKET_COUNT + 2;
+    private static final int SUM_OFFSET = BUCKET_COUNT;
+    private static final int MAX_OFFSET = BUCKET_COUNT + 1;
+
+    // Layout of the counter block: one drift histogram per API, the latency histogram,
+    // then the plain counters
+    private static final int DRIFT_BASE = 0;
+    private static final int LATENCY_BASE = API_COUNT * HISTOGRAM_SLOTS;
+    private static final int COALESCED = LATENCY_BASE + HISTOGRAM_SLOTS;
+    private static final int DELIVERY_ERRORS = COALESCED + 1;
+    private static final int ARM_ERRORS = DELIVERY_ERRORS + 1;
+    private static final int MISSED = ARM_ERRORS + 1;
+    private static final int ARMED_API = MISSED + 1;
+    private static final int ARMED_REMINDER_API = ARMED_API + 1;
+    private static final int SLOT_COUNT = ARMED_REMINDER_API + 1;
+
+    // Value of an armed API slot in pending when this process did not arm that chain
+    private static final long NOT_ARMED_HERE = -1;
+
+    // The file as last read or written here, plus what was recorded since
+    private static final long[] slots = new long[SLOT_COUNT];
+    // What was recorded since the last write. Counts and sums are added to the file,
+    // maxima and armed APIs replace its values when they are higher or set.
+    private static final long[] pending = new long[SLOT_COUNT];
+    private static final ByteBuffer buffer = ByteBuffer.allocate(4 + SLOT_COUNT * 8);
+    private static AtomicFile atomicFile;
+    private static boolean loaded;
+
+    static {
+        clearPending();
+    }
+
+    private AlarmMetrics() {
+    }
+
+    /**
+     * Maps the API name returned by the scheduler to one of the API constants.
+     */
+    static int apiOf(String method) {
+        for (int i = 0; i < API_UNKNOWN; i++) {
+            if (API_NAMES[i].equals(method)) {
+                return i;
+            }
+        }
+        return API_UNKNOWN;
+    }
+
+    /**
+     * Records the API a chained alarm was just armed with, so the process it fires in
+     * can attribute the delivery. {@code reminder} selects the reminder chain.
+     */
+    static synchronized void onArmed(Context context, int api, boolean reminder) {
+        ensureLoaded(context);
+        int slot = reminder ? ARMED_REMINDER_API : ARMED_API;
+        if (slots[slot] != api) {
+            slots[slot] = api;
+            pending[slot] = api;
+            flush(context);
+        }
+    }
+
+    /**
+     * The API of the currently armed critical or reminder chain, or {@link #API_UNKNOWN}.
+     */
+    static synchronized int armedApi(Context context, boolean reminder) {
+        ensureLoaded(context);
+        return (int) slots[reminder ? ARMED_REMINDER_API : ARMED_API];
+    }
+
+    /**
+     * Records one alarm received at {@code receivedAt} (wall clock) for {@code requestedAt}.
+     * Alarms pulled forward by the coalescing window are counted separately.
+     */
+    static synchronized void recordFire(Context context, long requestedAt, long receivedAt, int api) {
+        ensureLoaded(context);
+        long drift = receivedAt - requestedAt;
+        if (drift < 0) {
+            add(COALESCED, 1);
+            return;
+        }
+        record(DRIFT_BASE + api * HISTOGRAM_SLOTS, drift);
+    }
+
+    /**
+     * Records the time from onReceive to the last notification of a wakeup being posted.
+     */
+    static synchronized void recordLatency(Context context, long latencyMs) {
+        ensureLoaded(context);
+        record(LATENCY_BASE, latencyMs);
+    }
+
+    static synchronized void recordDeliveryError(Context context) {
+        ensureLoaded(context);
+        add(DELIVERY_ERRORS, 1);
+    }
+
+    static synchronized void recordArmError(Context context) {
+        ensureLoaded(context);
+        add(ARM_ERRORS, 1);
+        flush(context);
+    }
+
+    /**
+     * Records alarms dropped because they were missed by more than the grace period.
+     */
+    static synchronized void recordMissed(Context context, int count) {
+        if (count <= 0) {
+            return;
+        }
+        ensureLoaded(context);
+        add(MISSED, count);
+        flush(context);
+    }
+
+    private static void record(int base, long value) {
+        int bucket = 0;
+        while (value >= BUCKET_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        add(base + bucket, 1);
+        add(base + SUM_OFFSET, value);
+        int max = base + MAX_OFFSET;
+        if (value > slots[max]) {
+            slots[max] = value;
+        }
+        if (value > pending[max]) {
+            pending[max] = value;
+        }
+    }
+
+    private static void add(int slot, long count) {
+        slots[slot] += count;
+        pending[slot] += count;
+    }
+
+    /**
+     * Merges what was recorded here into the file. Called once per wakeup rather than per
+     * event.
+     */
+    static synchronized void flush(Context context) {
+        if (loaded) {
+            write(context, false);
+        }
+    }
+
+    /**
+     * Clears the counters of both processes, keeping the armed APIs.
+     */
+    static synchronized void reset(Context context) {
+        ensureLoaded(context);
+        write(context, true);
+    }
+
+    /**
+     * Drops the counters read from the file, so the next access reads what the other
+     * process wrote. What was recorded here since the last write is kept.
+     */
+    static synchronized void invalidate() {
+        loaded = false;
+    }
+
+    // Reads the file again under the lock, so counts the other process wrote since this
+    // one read it are kept, and writes it back with the pending events merged in
+    private static void write(Context context, boolean reset) {
+        File lockFile = new File(context.getNoBackupFilesDir(), LOCK_FILE_NAME);
+        try (RandomAccessFile lockAccess = new RandomAccessFile(lockFile, "rw")) {
+            // Released when the file is closed
+            lockAccess.getChannel().lock();
+
+            read(context);
+            if (reset) {
+                long armedApi = slots[ARMED_API];
+                long armedReminderApi = slots[ARMED_REMINDER_API];
+                Arrays.fill(slots, 0);
+                slots[ARMED_API] = armedApi;
+                slots[ARMED_REMINDER_API] = armedReminderApi;
+                clearPending();
+            } else {
+                mergePending();
+            }
+
+            buffer.clear();
+            buffer.putInt(FORMAT_VERSION);
+            for (long slot : slots) {
+                buffer.putLong(slot);
+            }
+
+            AtomicFile file = metricsFile(context);
+            FileOutputStream out = null;
+            try {
+                out = file.startWrite();
+                out.write(buffer.array(), 0, buffer.position());
+                file.finishWrite(out);
+            } catch (IOException e) {
+                if (out != null) {
+                    file.failWrite(out);
+                }
+                throw e;
+            }
+            clearPending();
+        } catch (IOException e) {
+            android.util.Log.e(TAG, "Error saving metrics", e);
+            return;
+        }
+        AlarmProcess.notifyMetrics(context);
+    }
+
+    /**
+     * Returns the metrics as channel-friendly maps and lists.
+     */
+    static synchronized Map<String, Object> snapshot(Context context) {
+        ensureLoaded(context);
+
+        Map<String, Object> drift = new HashMap<>();
+        for (int api = 0; api < API_COUNT; api++) {
+            drift.put(API_NAMES[api], histogram(DRIFT_BASE + api * HISTOGRAM_SLOTS));
+        }
+
+        List<Long> bounds = new ArrayList<>(BUCKET_COUNT - 1);
+        for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+            bounds.add(BUCKET_BOUNDS_MS[i]);
+        }
+
+        Map<String, Object> device = new HashMap<>();
+        device.put("manufacturer", Build.MANUFACTURER);
+        device.put("model", Build.MODEL);
+        device.put("sdk_int", Build.VERSION.SDK_INT);
+
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("bucket_bounds_ms", bounds);
+        snapshot.put("drift_ms", drift);
+        snapshot.put("latency_ms", histogram(LATENCY_BASE));
+        snapshot.put("coalesced", slots[COALESCED]);
+        snapshot.put("delivery_errors", slots[DELIVERY_ERRORS]);
+        snapshot.put("arm_errors", slots[ARM_ERRORS]);
+        snapshot.put("missed", slots[MISSED]);
+        snapshot.put("armed_api", API_NAMES[(int) slots[ARMED_API]]);
+        snapshot.put("armed_reminder_api", API_NAMES[(int) slots[ARMED_REMINDER_API]]);
+        snapshot.put("device", device);
+        return snapshot;
+    }
+
+    /**
+     * Writes the snapshot as JSON to {@code path}, or to the app's external files
+     * directory if no path is given. Returns the file written.
+     */
+    static File export(Context context, String path) throws IOException {
+        File target;
+        if (path != null) {
+            target = new File(path);
+        } else {
+            File directory = context.getExternalFilesDir(null);
+            target = new File(directory != null ? directory : context.getFilesDir(), EXPORT_FILE_NAME);
+        }
+
+        String json = new JSONObject(snapshot(context)).toString();
+        try (FileWriter writer = new FileWriter(target)) {
+            writer.write(json);
+        }
+        return target;
+    }
+
+    private static Map<String, Object> histogram(int base) {
+        long count = 0;
+        List<Long> counts = new ArrayList<>(BUCKET_COUNT);
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.add(slots[base + i]);
+            count += slots[base + i];
+        }
+
+        Map<String, Object> histogram = new HashMap<>();
+        histogram.put("counts", counts);
+        histogram.put("count", count);
+        histogram.put("sum", slots[base + SUM_OFFSET]);
+        histogram.put("max", slots[base + MAX_OFFSET]);
+        return histogram;
+    }
+
+    private static void ensureLoaded(Context context) {
+        if (loaded) {
+            return;
+        }
+        read(context);
+        mergePending();
+    }
+
+    // Replaces the slots with the file's contents
+    private static void read(Context context) {
+        loaded = true;
+        Arrays.fill(slots, 0);
+        slots[ARMED_API] = API_UNKNOWN;
+        slots[ARMED_REMINDER_API] = API_UNKNOWN;
+
+        AtomicFile file = metricsFile(context);
+        if (!file.getBaseFile().exists()) {
+            return;
+        }
+        try {
+            ByteBuffer data = ByteBuffer.wrap(file.readFully());
+            if (data.remaining() != buffer.capacity() || data.getInt() != FORMAT_VERSION) {
+                // Layout changed; start over rather than misread counters
+                return;
+            }
+            for (int i = 0; i < SLOT_COUNT; i++) {
+                slots[i] = data.getLong();
+            }
+        } catch (IOException e) {
+            android.util.Log.e(TAG, "Error loading metrics", e);
+        }
+    }
+
+    private static void mergePending() {
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            if (i == ARMED_API || i == ARMED_REMINDER_API) {
+                if (pending[i] != NOT_ARMED_HERE) {
+                    slots[i] = pending[i];
+                }
+            } else if (i < COALESCED && i % HISTOGRAM_SLOTS == MAX_OFFSET) {
+                slots[i] = Math.max(slots[i], pending[i]);
+            } else {
+                slots[i] += pending[i];
+            }
+        }
+    }
+
+    private static void clearPending() {
+        Arrays.fill(pending, 0);
+        pending[ARMED_API] = NOT_ARMED_HERE;
+        pending[ARMED_REMINDER_API] = NOT_ARMED_HERE;
+    }
+
+    private static AtomicFile metricsFile(Context context) {
+        if (atomicFile == null) {
+            atomicFile = new AtomicFile(new File(context.getNoBackupFilesDir(), FILE_NAME));
+        }
+        return atomicFile;
+    }
+}
@@ -0,0 +1,235 @@
+package com.zuwad;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.media.RingtoneManager;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.PowerManager;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Plays the alarm sound for a delivered lesson alarm until it is stopped.
+ *
+ * The user's alarm tone is copied into app storage when alarms are scheduled, so firing
+ * an alarm only opens a local file rather than resolving the tone through the settings
+ * and media providers. While the foreground lead window is open the player is already
+ * prepared and starts immediately. Playback uses alarm audio attributes, fades in, and
+ * stops on its own after {@link #MAX_DURATION_MS}, when the alarm is dismissed with the
+ * "إيقاف" action, or when the app is opened.
+ *
+ * All player calls run on one audio thread.
+ */
+final class AlarmPlayer {
+    private static final String TAG = "AlarmPlayer";
+    private static final String SOUND_FILE_NAME = "alarm_sound";
+
+    private static final long FADE_IN_MS = 10 * 1000L;
+    private static final int FADE_STEPS = 20;
+    private static final float START_VOLUME = 0.05f;
+    private static final long MAX_DURATION_MS = 60 * 1000L;
+
+    private static volatile Handler handler;
+
+    // Only touched on the audio thread
+    private static MediaPlayer player;
+    private static boolean playing;
+    private static int fadeStep;
+
+    // The tone is copied at most once per process unless the user changes it
+    private static volatile String cachedSource;
+
+    private static final Runnable fadeTask = AlarmPlayer::fadeStep;
+    private static final Runnable timeoutTask = AlarmPlayer::stopOnAudioThread;
+
+    private AlarmPlayer() {
+    }
+
+    /**
+     * Copies the current alarm tone into app storage if it changed. Called on the alarm
+     * thread when alarms are scheduled.
+     */
+    static void cacheSound(Context context) {
+        Uri source = defaultSoundUri(context);
+        if (source == null) {
+            return;
+        }
+        String sourceKey = source.toString();
+        File target = soundFile(context);
+        if (sourceKey.equals(cachedSource) && target.exists()) {
+            return;
+        }
+        if (sourceKey.equals(AlarmPreferences.getAlarmSoundSource(context)) && target.exists()) {
+            cachedSource = sourceKey;
+            return;
+        }
+
+        File partial = new File(target.getPath() + ".tmp");
+        try (InputStream in = context.getContentResolver().openInputStream(source);
+             OutputStream out = new FileOutputStream(partial)) {
+            if (in == null) {
+                return;
+            }
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException | SecurityException e) {
+            android.util.Log.e(TAG, "Error caching alarm sound", e);
+            partial.delete();
+            return;
+        }
+
+        if (partial.renameTo(target)) {
+            AlarmPreferences.setAlarmSoundSource(context, sourceKey);
+            cachedSource = sourceKey;
+        }
+    }
+
+    /**
+     * Prepares the player ahead of an alarm so that {@link #start} does not wait on I/O.
+     */
+    static void prepare(Context context) {
+        Context appContext = context.getApplicationContext();
+        audioHandler().post(() -> ensurePrepared(appContext));
+    }
+
+    /**
+     * Releases a prepared player that was not used, e.g. when the lead window closes.
+     */
+    static void release() {
+        audioHandler().post(() -> {
+            if (!playing) {
+                releasePlayer();
+            }
+        });
+    }
+
+    /**
+     * Starts the alarm sound with a fade-in. Does nothing if it is already playing.
+     */
+    static void start(Context context) {
+        Context appContext = context.getApplicationContext();
+        audioHandler().post(() -> {
+            if (playing || !ensurePrepared(appContext)) {
+                return;
+            }
+            try {
+                fadeStep = 0;
+                player.setVolume(START_VOLUME, START_VOLUME);
+                player.start();
+                playing = true;
+            } catch (IllegalStateException e) {
+                android.util.Log.e(TAG, "Error starting alarm sound", e);
+                releasePlayer();
+                return;
+            }
+            handler.postDelayed(fadeTask, FADE_IN_MS / FADE_STEPS);
+            handler.postDelayed(timeoutTask, MAX_DURATION_MS);
+        });
+    }
+
+    /**
+     * Stops the alarm sound if it is playing. Safe to call from any thread.
+     */
+    static void stop() {
+        if (handler == null) {
+            return;
+        }
+        handler.post(AlarmPlayer::stopOnAudioThread);
+    }
+
+    private static void stopOnAudioThread() {
+        if (!playing) {
+            return;
+        }
+        handler.removeCallbacks(fadeTask);
+        handler.removeCallbacks(timeoutTask);
+        releasePlayer();
+    }
+
+    private static void fadeStep() {
+        if (!playing) {
+            return;
+        }
+        fadeStep++;
+        // Loudness is roughly logarithmic, so ramp the gain on a curve
+        float progress = (float) fadeStep / FADE_STEPS;
+        float volume = Math.max(START_VOLUME, progress * progress);
+        player.setVolume(volume, volume);
+        if (fadeStep < FADE_STEPS) {
+            handler.postDelayed(fadeTask, FADE_IN_MS / FADE_STEPS);
+        }
+    }
+
+    private static boolean ensurePrepared(Context context) {
+        if (player != null) {
+            return true;
+        }
+
+        MediaPlayer mediaPlayer = new MediaPlayer();
+        try {
+            mediaPlayer.setAudioAttributes(new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_ALARM)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                    .build());
+            mediaPlayer.setWakeMode(context, PowerManager.PARTIAL_WAKE_LOCK);
+            File file = soundFile(context);
+            if (file.exists()) {
+                mediaPlayer.setDataSource(file.getPath());
+            } else {
+                // Not cached yet; fall back to resolving the tone now
+                Uri source = defaultSoundUri(context);
+                if (source == null) {
+                    mediaPlayer.release();
+                    return false;
+                }
+                mediaPlayer.setDataSource(context, source);
+            }
+            mediaPlayer.setLooping(true);
+            mediaPlayer.prepare();
+        } catch (IOException | RuntimeException e) {
+            android.util.Log.e(TAG, "Error preparing alarm sound", e);
+            mediaPlayer.release();
+            return false;
+        }
+        player = mediaPlayer;
+        return true;
+    }
+
+    private static void releasePlayer() {
+        playing = false;
+        if (player != null) {
+            player.release();
+            player = null;
+        }
+    }
+
+    private static Uri defaultSoundUri(Context context) {
+        Uri uri = RingtoneManager.getActualDefaultRingtoneUri(context, RingtoneManager.TYPE_ALARM);
+        if (uri == null) {
+            uri = RingtoneManager.getActualDefaultRingtoneUri(context, RingtoneManager.TYPE_NOTIFICATION);
+        }
+        return uri;
+    }
+
+    private static File soundFile(Context context) {
+        return new File(context.getNoBackupFilesDir(), SOUND_FILE_NAME);
+    }
+
+    private static synchronized Handler audioHandler() {
+        if (handler == null) {
+            HandlerThread thread = new HandlerThread("zuwad-alarm-audio");
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        return handler;
+    }
+}
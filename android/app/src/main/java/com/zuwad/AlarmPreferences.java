@@ -0,0 +1,109 @@
+package com.zuwad;
+
+import android.content.Context;
+
+/**
+ * Tunables for the native alarm path, set from Dart over the native alarm channel.
+ *
+ * Kept in {@link AlarmStore} because alarms are delivered in the alarm process, which Dart
+ * never runs in, and SharedPreferences are not shared between processes. Values are
+ * cached after the first read until the store changes; see {@link AlarmProcess}.
+ */
+final class AlarmPreferences {
+    private static final String KEY_COALESCING_WINDOW_MS = "coalescing_window_ms";
+    private static final String KEY_FOREGROUND_LEAD_MS = "foreground_lead_ms";
+    private static final String KEY_EXACT_ALARMS_ALLOWED = "exact_alarms_allowed";
+    private static final String KEY_ALARM_SOUND_SOURCE = "alarm_sound_source";
+    private static final String KEY_RULE_OCCURRENCES = "rule_occurrences";
+
+    static final long DEFAULT_COALESCING_WINDOW_MS = 60 * 1000L;
+    static final long DEFAULT_FOREGROUND_LEAD_MS = 15 * 60 * 1000L;
+    static final int DEFAULT_RULE_OCCURRENCES = 2;
+
+    // Value of the exact alarm permission state before it was first checked
+    static final int UNKNOWN = -1;
+
+    private static long coalescingWindowMs = -1;
+    private static long foregroundLeadMs = -1;
+
+    private AlarmPreferences() {
+    }
+
+    /**
+     * Drops the cached values, so the next read sees what the other process wrote.
+     */
+    static synchronized void invalidate() {
+        coalescingWindowMs = -1;
+        foregroundLeadMs = -1;
+    }
+
+    /**
+     * Alarms due within this interval of the earliest due alarm are delivered together.
+     * While the foreground lead window is enabled the scheduler caps it just below
+     * {@link #getForegroundLeadMs}, so the wakeup that opens the window never delivers.
+     */
+    static synchronized long getCoalescingWindowMs(Context context) {
+        if (coalescingWindowMs < 0) {
+            coalescingWindowMs = store(context).getLong(KEY_COALESCING_WINDOW_MS, DEFAULT_COALESCING_WINDOW_MS);
+        }
+        return coalescingWindowMs;
+    }
+
+    static synchronized void setCoalescingWindowMs(Context context, long windowMs) {
+        coalescingWindowMs = Math.max(0, windowMs);
+        store(context).putLong(KEY_COALESCING_WINDOW_MS, coalescingWindowMs);
+    }
+
+    /**
+     * How long before the next alarm {@link AlarmForegroundService} is started, or 0 if
+     * the service is disabled.
+     */
+    static synchronized long getForegroundLeadMs(Context context) {
+        if (foregroundLeadMs < 0) {
+            foregroundLeadMs = store(context).getLong(KEY_FOREGROUND_LEAD_MS, 0);
+        }
+        return foregroundLeadMs;
+    }
+
+    static synchronized void setForegroundLeadMs(Context context, long leadMs) {
+        foregroundLeadMs = Math.max(0, leadMs);
+        store(context).putLong(KEY_FOREGROUND_LEAD_MS, foregroundLeadMs);
+    }
+
+    /**
+     * Last seen exact alarm permission state: 1 allowed, 0 denied, or {@link #UNKNOWN}.
+     */
+    static synchronized int getExactAlarmsAllowed(Context context) {
+        return (int) store(context).getLong(KEY_EXACT_ALARMS_ALLOWED, UNKNOWN);
+    }
+
+    static synchronized void setExactAlarmsAllowed(Context context, int allowed) {
+        store(context).putLong(KEY_EXACT_ALARMS_ALLOWED, allowed);
+    }
+
+    /**
+     * How many upcoming lessons of each weekly rule are armed at a time.
+     */
+    static int getRuleOccurrences(Context context) {
+        return (int) store(context).getLong(KEY_RULE_OCCURRENCES, DEFAULT_RULE_OCCURRENCES);
+    }
+
+    static void setRuleOccurrences(Context context, int occurrences) {
+        store(context).putLong(KEY_RULE_OCCURRENCES, Math.max(1, occurrences));
+    }
+
+    /**
+     * URI of the tone last copied by {@link AlarmPlayer#cacheSound}, or null.
+     */
+    static String getAlarmSoundSource(Context context) {
+        return store(context).getString(KEY_ALARM_SOUND_SOURCE);
+    }
+
+    static void setAlarmSoundSource(Context context, String source) {
+        store(context).putString(KEY_ALARM_SOUND_SOURCE, source);
+    }
+
+    private static AlarmStore store(Context context) {
+        return AlarmStore.getInstance(context);
+    }
+}
@@ -0,0 +1,199 @@
+package com.zuwad;
+
+import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Process;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Links the main process, which runs Flutter, Firebase and the meeting, with the
+ * {@code :alarm} process that delivers the alarms.
+ *
+ * {@link AlarmReceiver}, {@link AlarmBootReceiver}, {@link AlarmForegroundService} and
+ * {@link AlarmPlayer} run in the alarm process, which never loads the engine or the
+ * Firebase SDKs, so an alarm starts a small process that the system is less likely to
+ * kill and that starts faster than the app. Both processes share state only through
+ * {@link AlarmStore}. After each alarm, rule or settings write the writer broadcasts a
+ * store change, and the other process drops what it cached from the store and re-arms
+ * the chains from it, so the last arm always matches the store. A queued event only asks
+ * the other process to replay events, and a metrics write only to reload the metrics;
+ * see {@link #register}.
+ *
+ * The alarm process asks the main process to warm the engine through
+ * {@link AlarmWarmUpReceiver}, and the main process silences a ringing alarm through
+ * {@link #silence}.
+ */
+final class AlarmProcess {
+    private static final String TAG = "AlarmProcess";
+
+    static final String ALARM_PROCESS_SUFFIX = ":alarm";
+
+    private static final String ACTION_STORE_CHANGED = "com.zuwad.ALARM_STORE_CHANGED";
+    private static final String ACTION_EVENTS_QUEUED = "com.zuwad.ALARM_EVENTS_QUEUED";
+    private static final String ACTION_METRICS_CHANGED = "com.zuwad.ALARM_METRICS_CHANGED";
+    private static final String ACTION_SILENCE = "com.zuwad.SILENCE_ALARM";
+    private static final String EXTRA_PID = "pid";
+
+    // Signature permission, so no other app can send or receive these broadcasts
+    private static final String PERMISSION = "com.zuwad.permission.ALARM_PROCESS";
+
+    // Set while a store change broadcast is queued; writes before it is sent share it
+    private static final AtomicBoolean changePending = new AtomicBoolean();
+    private static final AtomicBoolean eventsPending = new AtomicBoolean();
+    private static final AtomicBoolean metricsPending = new AtomicBoolean();
+
+    private static Boolean alarmProcess;
+
+    private AlarmProcess() {
+    }
+
+    /**
+     * Whether this is the {@code :alarm} process.
+     */
+    static synchronized boolean isAlarmProcess(Context context) {
+        if (alarmProcess == null) {
+            String name = processName();
+            alarmProcess = name != null && name.endsWith(ALARM_PROCESS_SUFFIX);
+        }
+        return alarmProcess;
+    }
+
+    /**
+     * Listens for the other process's broadcasts. Called once per process from
+     * {@link ZuwadApplication#onCreate}.
+     */
+    static void register(Context context) {
+        Context appContext = context.getApplicationContext();
+        IntentFilter filter = new IntentFilter(ACTION_STORE_CHANGED);
+        filter.addAction(ACTION_EVENTS_QUEUED);
+        filter.addAction(ACTION_METRICS_CHANGED);
+        if (isAlarmProcess(appContext)) {
+            filter.addAction(ACTION_SILENCE);
+        }
+
+        BroadcastReceiver receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context receiverContext, Intent intent) {
+                if (intent.getIntExtra(EXTRA_PID, 0) == Process.myPid()) {
+                    return;
+                }
+                if (ACTION_SILENCE.equals(intent.getAction())) {
+                    AlarmPlayer.stop();
+                    return;
+                }
+                if (ACTION_METRICS_CHANGED.equals(intent.getAction())) {
+                    AlarmMetrics.invalidate();
+                    return;
+                }
+                if (ACTION_EVENTS_QUEUED.equals(intent.getAction())) {
+                    AlarmExecutor.execute(() -> AlarmEvents.replayPending(appContext));
+                    return;
+                }
+                AlarmExecutor.execute(() -> onStoreChanged(appContext));
+            }
+        };
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            appContext.registerReceiver(receiver, filter, PERMISSION, null, Context.RECEIVER_NOT_EXPORTED);
+        } else {
+            appContext.registerReceiver(receiver, filter, PERMISSION, null);
+        }
+    }
+
+    /**
+     * Tells the other process that {@link AlarmStore} changed. Safe to call from any
+     * thread; the broadcast is sent from the alarm thread, once for a run of writes.
+     */
+    static void notifyChanged(Context context) {
+        post(context, changePending, ACTION_STORE_CHANGED);
+    }
+
+    /**
+     * Tells the other process that events were queued in {@link AlarmStore}, so a Dart
+     * listener there can replay them. Nothing cached is dropped.
+     */
+    static void notifyEvents(Context context) {
+        post(context, eventsPending, ACTION_EVENTS_QUEUED);
+    }
+
+    /**
+     * Tells the other process that {@link AlarmMetrics} wrote its file, so it reads it
+     * again before its next access. Nothing else is dropped.
+     */
+    static void notifyMetrics(Context context) {
+        post(context, metricsPending, ACTION_METRICS_CHANGED);
+    }
+
+    /**
+     * Stops the alarm sound, which plays in the alarm process.
+     */
+    static void silence(Context context) {
+        if (isAlarmProcess(context)) {
+            AlarmPlayer.stop();
+        } else {
+            send(context.getApplicationContext(), ACTION_SILENCE);
+        }
+    }
+
+    // Runs on the alarm thread
+    private static void onStoreChanged(Context context) {
+        NativeAlarmScheduler.invalidate();
+        RecurrenceScheduler.invalidate();
+        AlarmPreferences.invalidate();
+        // Both processes arm the same chain PendingIntents; one that armed from a registry
+        // the change had not reached yet may have replaced the newer arm
+        try {
+            NativeAlarmScheduler.refresh(context);
+        } catch (RuntimeException e) {
+            android.util.Log.e(TAG, "Error re-arming after a store change", e);
+        }
+    }
+
+    private static void post(Context context, AtomicBoolean pending, String action) {
+        if (!pending.compareAndSet(false, true)) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        AlarmExecutor.execute(() -> {
+            pending.set(false);
+            send(appContext, action);
+        });
+    }
+
+    private static void send(Context context, String action) {
+        Intent intent = new Intent(action)
+                .setPackage(context.getPackageName())
+                .putExtra(EXTRA_PID, Process.myPid());
+        try {
+            context.sendBroadcast(intent, PERMISSION);
+        } catch (RuntimeException e) {
+            android.util.Log.e(TAG, "Error sending " + action, e);
+        }
+    }
+
+    private static String processName() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            return Application.getProcessName();
+        }
+        // Before Android 9 the name is only in the command line
+        try (FileInputStream in = new FileInputStream("/proc/self/cmdline")) {
+            byte[] buffer = new byte[256];
+            int length = in.read(buffer);
+            int end = 0;
+            while (end < length && buffer[end] != 0) {
+                end++;
+            }
+            return new String(buffer, 0, end, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            android.util.Log.e(TAG, "Error reading the process name", e);
+            return null;
+        }
+    }
+}
@@ -7,78 +7,161 @@ import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.media.Ringtone;
 import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.Build;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.os.Vibrator;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
+import com.zuwad.alarm.AlarmEntry;
+import com.zuwad.alarm.AlarmIds;
+import java.util.ArrayList;
+import java.util.List;
 
 public class AlarmReceiver extends BroadcastReceiver {
     private static final String CHANNEL_ID = "alarm_notifications";
-    private static final int NOTIFICATION_ID = 1000;
+    private static final String GROUP_KEY = "com.zuwad.LESSON_ALARMS";
+    static final String ACTION_STOP_ALARM = "STOP_ALARM";
+
+    // Upper bound on the wake lock; it is released as soon as delivery finishes
+    private static final long WAKE_LOCK_TIMEOUT_MS = 10 * 1000L;
+
+    private static final long[] VIBRATION_PATTERN = {0, 500, 200, 500};
+
+    // The channel only has to be created once per process
+    private static volatile boolean channelCreated;
+    private static Uri notificationSound;
+
+    // Time from onReceive to the last notification being posted, for the latest delivery
+    private static volatile long lastDeliveryLatencyMs = -1;
 
     @Override
     public void onReceive(Context context, Intent intent) {
-        android.util.Log.d("AlarmReceiver", "onReceive called!");
-        android.util.Log.d("AlarmReceiver", "Action: " + intent.getAction());
-        android.util.Log.d("AlarmReceiver", "Extras: " + intent.getExtras());
+        long receivedAt = SystemClock.elapsedRealtime();
+        long receivedWallTime = System.currentTimeMillis();
+        AlarmTrace.record(AlarmTrace.RECEIVE, 0);
+
+        if (ACTION_STOP_ALARM.equals(intent.getAction())) {
+            dismissAlarms(context, intent);
+            Context appContext = context.getApplicationContext();
+            AlarmExecutor.execute(() -> AlarmTrace.persist(appContext));
+            return;
+        }
 
         // Acquire wake lock to ensure device stays awake for notification
         PowerManager.WakeLock wakeLock = null;
-        try {
-            PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
-            if (pm != null) {
-                wakeLock = pm.newWakeLock(
-                        PowerManager.FULL_WAKE_LOCK |
-                        PowerManager.ACQUIRE_CAUSES_WAKEUP |
-                        PowerManager.ON_AFTER_RELEASE,
-                        "zuwad:alarm_wake_lock"
-                );
-                wakeLock.acquire(10 * 1000L); // Keep awake for 10 seconds
-                android.util.Log.d("AlarmReceiver", "WakeLock acquired");
+        PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if (pm != null) {
+            wakeLock = pm.newWakeLock(
+                    PowerManager.FULL_WAKE_LOCK |
+                    PowerManager.ACQUIRE_CAUSES_WAKEUP |
+                    PowerManager.ON_AFTER_RELEASE,
+                    "zuwad:alarm_wake_lock"
+            );
+            wakeLock.acquire(WAKE_LOCK_TIMEOUT_MS);
+        }
+
+        // Finish the work on the alarm thread so onReceive returns immediately
+        Context appContext = context.getApplicationContext();
+        PendingResult pendingResult = goAsync();
+        PowerManager.WakeLock heldWakeLock = wakeLock;
+        AlarmExecutor.execute(() -> {
+            try {
+                deliver(appContext, intent, receivedAt, receivedWallTime);
+            } catch (Exception e) {
+                android.util.Log.e("AlarmReceiver", "Error in onReceive", e);
+                AlarmMetrics.recordDeliveryError(appContext);
+                AlarmMetrics.flush(appContext);
+            } finally {
+                AlarmTrace.persist(appContext);
+                if (heldWakeLock != null && heldWakeLock.isHeld()) {
+                    heldWakeLock.release();
+                }
+                pendingResult.finish();
             }
+        });
+    }
+
+    /**
+     * Latency of the most recent delivery in milliseconds, or -1 if nothing has fired yet.
+     */
+    static long getLastDeliveryLatencyMs() {
+        return lastDeliveryLatencyMs;
+    }
 
-            // Get alarm details from intent
+    private void deliver(Context context, Intent intent, long receivedAt, long receivedWallTime) {
+        List<AlarmEntry> dueAlarms;
+        int api;
+        if (intent.hasExtra("alarm_id")) {
+            // Alarm armed directly with its own PendingIntent
             int alarmId = intent.getIntExtra("alarm_id", 0);
-            String title = intent.getStringExtra("title");
-            String body = intent.getStringExtra("body");
+            dueAlarms = new ArrayList<>(1);
+            dueAlarms.add(new AlarmEntry(alarmId, System.currentTimeMillis(),
+                    intent.getStringExtra("title"), intent.getStringExtra("body")));
 
-            android.util.Log.d("AlarmReceiver", "Alarm ID: " + alarmId);
-            android.util.Log.d("AlarmReceiver", "Title: " + title);
-            android.util.Log.d("AlarmReceiver", "Body: " + body);
+            // Delivered alarms no longer need to be re-armed after a reboot
+            NativeAlarmScheduler.onDelivered(context, alarmId);
+            api = AlarmMetrics.API_UNKNOWN;
+        } else {
+            // Chained alarm: collect everything that is due and arm the next trigger.
+            // Read the API first, polling re-arms the chain for the next alarm.
+            boolean reminderChain = intent.getBooleanExtra(NativeAlarmScheduler.EXTRA_REMINDER_CHAIN, false);
+            api = AlarmMetrics.armedApi(context, reminderChain);
+            dueAlarms = NativeAlarmScheduler.pollDueAlarms(context, reminderChain);
+        }
+
+        if (dueAlarms.isEmpty()) {
+            return;
+        }
 
-            if (title == null) title = "منبه الحصة";
-            if (body == null) body = "حان وقت الحصة";
+        ensureNotificationChannel(context);
 
-            // Create notification channel for Android O+
-            createNotificationChannel(context);
+        // Alarms coalesced into one wakeup are shown as a single group that alerts once
+        boolean grouped = dueAlarms.size() > 1;
 
+        NotificationManagerCompat notificationManager = NotificationManagerCompat.from(context);
+        for (AlarmEntry alarm : dueAlarms) {
             // Create and show notification
-            Notification notification = createNotification(context, title, body, alarmId);
-            NotificationManagerCompat notificationManager = NotificationManagerCompat.from(context);
-            notificationManager.notify(NOTIFICATION_ID + alarmId, notification);
+            Notification notification = createNotification(context, titleOf(alarm), bodyOf(alarm),
+                    alarm.id, alarm.triggerAt, grouped);
+            notificationManager.notify(AlarmIds.notificationId(alarm.id), notification);
+        }
+        if (grouped) {
+            notificationManager.notify(AlarmIds.SUMMARY_NOTIFICATION_ID, createSummaryNotification(context, dueAlarms));
+        }
 
-            android.util.Log.d("AlarmReceiver", "Notification shown");
+        lastDeliveryLatencyMs = SystemClock.elapsedRealtime() - receivedAt;
+        long deliveredThrough = 0;
+        for (AlarmEntry alarm : dueAlarms) {
+            deliveredThrough = Math.max(deliveredThrough, alarm.triggerAt);
+            AlarmTrace.record(AlarmTrace.DELIVER, alarm.id, alarm.triggerAt);
+            AlarmMetrics.recordFire(context, alarm.triggerAt, receivedWallTime, api);
+            AlarmEvents.post(context, AlarmEvents.FIRED, alarm.id, alarm.triggerAt);
+        }
+        AlarmTrace.record(AlarmTrace.DELIVERED, dueAlarms.size(), lastDeliveryLatencyMs);
+        AlarmMetrics.recordLatency(context, lastDeliveryLatencyMs);
+        AlarmMetrics.flush(context);
 
-            // Play sound and vibrate
-            playAlarmSound(context);
-            vibrateDevice(context);
+        // Play sound and vibrate once per wakeup
+        AlarmPlayer.start(context);
+        vibrateDevice(context);
 
-        } catch (Exception e) {
-            android.util.Log.e("AlarmReceiver", "Error in onReceive", e);
-            e.printStackTrace();
-        } finally {
-            if (wakeLock != null && wakeLock.isHeld()) {
-                wakeLock.release();
-                android.util.Log.d("AlarmReceiver", "WakeLock released");
-            }
-        }
+        // Arm the following lesson of any weekly rule that just fired. The coalescing
+        // window may have delivered it ahead of time, so expand from its trigger time.
+        RecurrenceScheduler.refresh(context, deliveredThrough);
     }
 
-    private void createNotificationChannel(Context context) {
+    /**
+     * Creates the alarm notification channel if this process has not done so yet.
+     * Also called when alarms are scheduled, so the first delivery skips the binder call.
+     */
+    static void ensureNotificationChannel(Context context) {
+        if (channelCreated) {
+            return;
+        }
+
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
                     CHANNEL_ID,
@@ -94,12 +177,105 @@ public class AlarmReceiver extends BroadcastReceiver {
                 manager.createNotificationChannel(channel);
             }
         }
+        channelCreated = true;
+    }
+
+    private static String titleOf(AlarmEntry alarm) {
+        return alarm.title != null ? alarm.title : "منبه الحصة";
+    }
+
+    private static String bodyOf(AlarmEntry alarm) {
+        return alarm.body != null ? alarm.body : "حان وقت الحصة";
+    }
+
+    /**
+     * Handles the "إيقاف" action: removes the alarm's notification, or the whole group
+     * when it comes from the summary.
+     */
+    private void dismissAlarms(Context context, Intent intent) {
+        AlarmPlayer.stop();
+        NotificationManagerCompat notificationManager = NotificationManagerCompat.from(context);
+        int[] alarmIds = intent.getIntArrayExtra("alarm_ids");
+        if (alarmIds != null) {
+            for (int alarmId : alarmIds) {
+                AlarmTrace.record(AlarmTrace.DISMISS, alarmId);
+                notificationManager.cancel(AlarmIds.notificationId(alarmId));
+                AlarmEvents.post(context, AlarmEvents.DISMISSED, alarmId, 0);
+            }
+            notificationManager.cancel(AlarmIds.SUMMARY_NOTIFICATION_ID);
+        } else if (intent.hasExtra("alarm_id")) {
+            int alarmId = intent.getIntExtra("alarm_id", 0);
+            AlarmTrace.record(AlarmTrace.DISMISS, alarmId);
+            notificationManager.cancel(AlarmIds.notificationId(alarmId));
+            AlarmEvents.post(context, AlarmEvents.DISMISSED, alarmId, 0);
+        }
+    }
+
+    private Notification createSummaryNotification(Context context, List<AlarmEntry> alarms) {
+        int[] alarmIds = new int[alarms.size()];
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+        for (int i = 0; i < alarmIds.length; i++) {
+            AlarmEntry alarm = alarms.get(i);
+            alarmIds[i] = alarm.id;
+            style.addLine(bodyOf(alarm));
+        }
+
+        String title = "منبهات الحصص (" + alarms.size() + ")";
+        style.setBigContentTitle(title);
+
+        Intent notificationIntent = new Intent(context, MainActivity.class);
+        // Reuse the running activity (and its engine) instead of restarting the task
+        notificationIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        notificationIntent.putExtra("alarm_id", alarmIds[0]);
+        notificationIntent.putExtra("alarm_ids", alarmIds);
+        notificationIntent.putExtra("trigger_at", alarms.get(0).triggerAt);
+        notificationIntent.putExtra("title", title);
+        notificationIntent.putExtra("body", bodyOf(alarms.get(0)));
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+                context,
+                AlarmIds.SUMMARY_NOTIFICATION_ID,
+                notificationIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        Intent stopIntent = new Intent(context, AlarmReceiver.class);
+        stopIntent.setAction(ACTION_STOP_ALARM);
+        stopIntent.putExtra("alarm_ids", alarmIds);
+        PendingIntent stopPendingIntent = PendingIntent.getBroadcast(
+                context,
+                AlarmIds.SUMMARY_NOTIFICATION_ID,
+                stopIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        return new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.mipmap.launcher_icon)
+                .setContentTitle(title)
+                .setContentText(bodyOf(alarms.get(0)))
+                .setStyle(style)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setCategory(NotificationCompat.CATEGORY_ALARM)
+                .setGroup(GROUP_KEY)
+                .setGroupSummary(true)
+                .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY)
+                .setOngoing(true)
+                .setContentIntent(pendingIntent)
+                .addAction(android.R.drawable.ic_menu_close_clear_cancel, "إيقاف", stopPendingIntent)
+                .setVibrate(VIBRATION_PATTERN)
+                .setSound(notificationSound)
+                .build();
     }
 
-    private Notification createNotification(Context context, String title, String body, int alarmId) {
+    private Notification createNotification(Context context, String title, String body, int alarmId,
+                                            long triggerAt, boolean grouped) {
         Intent notificationIntent = new Intent(context, MainActivity.class);
-        notificationIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        // Reuse the running activity (and its engine) instead of restarting the task
+        notificationIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
         notificationIntent.putExtra("alarm_id", alarmId);
+        // Lets the app tell which lesson the tap is for
+        notificationIntent.putExtra("trigger_at", triggerAt);
+        notificationIntent.putExtra("title", title);
+        notificationIntent.putExtra("body", body);
 
         PendingIntent pendingIntent = PendingIntent.getActivity(
                 context,
@@ -110,7 +286,7 @@ public class AlarmReceiver extends BroadcastReceiver {
 
         // Create stop intent
         Intent stopIntent = new Intent(context, AlarmReceiver.class);
-        stopIntent.setAction("STOP_ALARM");
+        stopIntent.setAction(ACTION_STOP_ALARM);
         stopIntent.putExtra("alarm_id", alarmId);
         PendingIntent stopPendingIntent = PendingIntent.getBroadcast(
                 context,
@@ -119,6 +295,10 @@ public class AlarmReceiver extends BroadcastReceiver {
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
         );
 
+        if (notificationSound == null) {
+            notificationSound = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
+        }
+
         NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
                 .setSmallIcon(R.mipmap.launcher_icon)
                 .setContentTitle(title)
@@ -130,41 +310,30 @@ public class AlarmReceiver extends BroadcastReceiver {
                 .setOngoing(true)
                 .setContentIntent(pendingIntent)
                 .addAction(android.R.drawable.ic_menu_close_clear_cancel, "إيقاف", stopPendingIntent)
-                .setVibrate(new long[]{0, 500, 200, 500})
-                .setSound(RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION));
-
-        return builder.build();
-    }
-
-    private void playAlarmSound(Context context) {
-        try {
-            Uri alarmUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
-            if (alarmUri == null) {
-                alarmUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
-            }
+                .setVibrate(VIBRATION_PATTERN)
+                .setSound(notificationSound);
 
-            Ringtone ringtone = RingtoneManager.getRingtone(context, alarmUri);
-            if (ringtone != null) {
-                ringtone.play();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (grouped) {
+            // Only the summary alerts, so a burst of alarms plays one sound
+            builder.setGroup(GROUP_KEY)
+                    .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY);
         }
+
+        return builder.build();
     }
 
     private void vibrateDevice(Context context) {
         try {
             Vibrator vibrator = (Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
             if (vibrator != null) {
-                long[] pattern = {0, 500, 200, 500};
                 if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                    vibrator.vibrate(android.os.VibrationEffect.createWaveform(pattern, -1));
+                    vibrator.vibrate(android.os.VibrationEffect.createWaveform(VIBRATION_PATTERN, -1));
                 } else {
-                    vibrator.vibrate(pattern, -1); // -1 = don't repeat
+                    vibrator.vibrate(VIBRATION_PATTERN, -1); // -1 = don't repeat
                 }
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            android.util.Log.e("AlarmReceiver", "Error vibrating", e);
         }
     }
 }
@@ -0,0 +1,392 @@
+package com.zuwad;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import com.zuwad.alarm.AlarmEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-device record of every native alarm that is currently scheduled.
+ *
+ * AlarmManager forgets everything on reboot and on app update, so the scheduler writes
+ * through to this store and {@link AlarmBootReceiver} re-arms from it without needing
+ * Dart. SQLite's journal keeps the table consistent if the process dies mid-write.
+ *
+ * It also holds the alarm events raised while no Dart listener was attached, until
+ * {@link AlarmEvents} replays them, the weekly lesson rules that
+ * {@link RecurrenceScheduler} expands into alarms, and {@link AlarmPreferences}.
+ *
+ * The store is shared by the main process and the alarm process. Every alarm, rule and
+ * settings write is announced to the other process through
+ * {@link AlarmProcess#notifyChanged}, so it can drop what it cached from here; queued
+ * events are announced through {@link AlarmProcess#notifyEvents}.
+ */
+final class AlarmStore extends SQLiteOpenHelper {
+    private static final String DATABASE_NAME = "zuwad_native_alarms.db";
+    private static final int DATABASE_VERSION = 5;
+
+    private static final String TABLE_ALARMS = "alarms";
+    private static final String COLUMN_ID = "alarm_id";
+    private static final String COLUMN_TRIGGER_AT = "trigger_at";
+    private static final String COLUMN_TITLE = "title";
+    private static final String COLUMN_BODY = "body";
+    private static final String COLUMN_TOLERANCE_MS = "tolerance_ms";
+
+    private static final String TABLE_EVENTS = "pending_events";
+    private static final String COLUMN_SEQUENCE = "sequence";
+    private static final String COLUMN_TYPE = "type";
+    private static final String COLUMN_TIME = "time";
+    private static final String COLUMN_VALUE = "value";
+
+    // Oldest pending events are dropped beyond this count
+    private static final int MAX_PENDING_EVENTS = 200;
+
+    private static final String TABLE_RULES = "lesson_rules";
+    private static final String COLUMN_POSITION = "position";
+    private static final String COLUMN_RULE = "rule";
+
+    private static final String TABLE_SETTINGS = "settings";
+    private static final String COLUMN_KEY = "key";
+    // Settings reuse COLUMN_VALUE; SQLite keeps integers and text as they were bound
+
+    // SharedPreferences file the settings were kept in before version 5
+    private static final String LEGACY_PREFS_NAME = "zuwad_native_alarms";
+
+    private static AlarmStore instance;
+
+    private final Context context;
+
+    static synchronized AlarmStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new AlarmStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AlarmStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this.context = context;
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_ALARMS + " ("
+                + COLUMN_ID + " INTEGER PRIMARY KEY, "
+                + COLUMN_TRIGGER_AT + " INTEGER NOT NULL, "
+                + COLUMN_TITLE + " TEXT, "
+                + COLUMN_BODY + " TEXT, "
+                + COLUMN_TOLERANCE_MS + " INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX idx_alarms_trigger_at ON " + TABLE_ALARMS + " (" + COLUMN_TRIGGER_AT + ")");
+        createEventsTable(db);
+        createRulesTable(db);
+        createSettingsTable(db);
+        migrateLegacySettings(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            createEventsTable(db);
+        }
+        if (oldVersion < 3) {
+            createRulesTable(db);
+        }
+        if (oldVersion < 4) {
+            // Alarms stored before delivery classes existed are all critical
+            db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN "
+                    + COLUMN_TOLERANCE_MS + " INTEGER NOT NULL DEFAULT 0");
+        }
+        if (oldVersion < 5) {
+            createSettingsTable(db);
+            migrateLegacySettings(db);
+        }
+    }
+
+    private static void createSettingsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_SETTINGS + " ("
+                + COLUMN_KEY + " TEXT PRIMARY KEY, "
+                + COLUMN_VALUE + ")");
+    }
+
+    /**
+     * Copies the settings out of SharedPreferences, which cannot be shared between
+     * processes, and deletes them there.
+     */
+    private void migrateLegacySettings(SQLiteDatabase db) {
+        SharedPreferences legacy = context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+        for (Map.Entry<String, ?> setting : legacy.getAll().entrySet()) {
+            ContentValues values = new ContentValues(2);
+            values.put(COLUMN_KEY, setting.getKey());
+            Object value = setting.getValue();
+            if (value instanceof Long || value instanceof Integer) {
+                values.put(COLUMN_VALUE, ((Number) value).longValue());
+            } else if (value != null) {
+                values.put(COLUMN_VALUE, value.toString());
+            }
+            db.insertWithOnConflict(TABLE_SETTINGS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        }
+        legacy.edit().clear().apply();
+    }
+
+    private static void createRulesTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_RULES + " ("
+                + COLUMN_POSITION + " INTEGER PRIMARY KEY, "
+                + COLUMN_RULE + " TEXT NOT NULL)");
+    }
+
+    private static void createEventsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_EVENTS + " ("
+                + COLUMN_SEQUENCE + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COLUMN_TYPE + " INTEGER NOT NULL, "
+                + COLUMN_ID + " INTEGER NOT NULL, "
+                + COLUMN_TIME + " INTEGER NOT NULL, "
+                + COLUMN_VALUE + " INTEGER NOT NULL)");
+    }
+
+    void put(AlarmEntry entry) {
+        ContentValues values = new ContentValues(5);
+        values.put(COLUMN_ID, entry.id);
+        values.put(COLUMN_TRIGGER_AT, entry.triggerAt);
+        values.put(COLUMN_TITLE, entry.title);
+        values.put(COLUMN_BODY, entry.body);
+        values.put(COLUMN_TOLERANCE_MS, entry.toleranceMs);
+        getWritableDatabase().insertWithOnConflict(TABLE_ALARMS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        AlarmProcess.notifyChanged(context);
+    }
+
+    /**
+     * Writes a batch of alarms in a single transaction.
+     */
+    void putAll(List<AlarmEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_ALARMS
+                    + " (" + COLUMN_ID + ", " + COLUMN_TRIGGER_AT + ", " + COLUMN_TITLE + ", " + COLUMN_BODY
+                    + ", " + COLUMN_TOLERANCE_MS + ") VALUES (?, ?, ?, ?, ?)");
+            for (AlarmEntry entry : entries) {
+                insert.clearBindings();
+                insert.bindLong(1, entry.id);
+                insert.bindLong(2, entry.triggerAt);
+                bindNullableString(insert, 3, entry.title);
+                bindNullableString(insert, 4, entry.body);
+                insert.bindLong(5, entry.toleranceMs);
+                insert.executeInsert();
+            }
+            insert.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        AlarmProcess.notifyChanged(context);
+    }
+
+    void remove(int alarmId) {
+        getWritableDatabase().delete(TABLE_ALARMS, COLUMN_ID + " = ?", new String[]{String.valueOf(alarmId)});
+        AlarmProcess.notifyChanged(context);
+    }
+
+    /**
+     * Removes a batch of alarms in a single transaction.
+     */
+    void removeAll(int[] alarmIds) {
+        if (alarmIds.length == 0) {
+            return;
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement delete = db.compileStatement(
+                    "DELETE FROM " + TABLE_ALARMS + " WHERE " + COLUMN_ID + " = ?");
+            for (int alarmId : alarmIds) {
+                delete.bindLong(1, alarmId);
+                delete.executeUpdateDelete();
+            }
+            delete.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        AlarmProcess.notifyChanged(context);
+    }
+
+    void clear() {
+        getWritableDatabase().delete(TABLE_ALARMS, null, null);
+        AlarmProcess.notifyChanged(context);
+    }
+
+    /**
+     * Drops alarms whose trigger time is before {@code cutoff}.
+     */
+    int removeBefore(long cutoff) {
+        int removed = getWritableDatabase().delete(TABLE_ALARMS, COLUMN_TRIGGER_AT + " < ?",
+                new String[]{String.valueOf(cutoff)});
+        if (removed > 0) {
+            AlarmProcess.notifyChanged(context);
+        }
+        return removed;
+    }
+
+    /**
+     * Returns every stored alarm ordered by trigger time.
+     */
+    List<AlarmEntry> getAll() {
+        List<AlarmEntry> entries = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_ALARMS,
+                new String[]{COLUMN_ID, COLUMN_TRIGGER_AT, COLUMN_TITLE, COLUMN_BODY, COLUMN_TOLERANCE_MS},
+                null, null, null, null, COLUMN_TRIGGER_AT + " ASC")) {
+            while (cursor.moveToNext()) {
+                entries.add(new AlarmEntry(
+                        cursor.getInt(0),
+                        cursor.getLong(1),
+                        cursor.getString(2),
+                        cursor.getString(3),
+                        cursor.getLong(4)
+                ));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Queues an event for the next Dart listener, dropping the oldest beyond
+     * {@link #MAX_PENDING_EVENTS}.
+     */
+    void addEvent(AlarmEvents.Event event) {
+        SQLiteDatabase db = getWritableDatabase();
+        ContentValues values = new ContentValues(4);
+        values.put(COLUMN_TYPE, event.type);
+        values.put(COLUMN_ID, event.alarmId);
+        values.put(COLUMN_TIME, event.time);
+        values.put(COLUMN_VALUE, event.value);
+        long sequence = db.insert(TABLE_EVENTS, null, values);
+        if (sequence > MAX_PENDING_EVENTS) {
+            db.delete(TABLE_EVENTS, COLUMN_SEQUENCE + " <= ?",
+                    new String[]{String.valueOf(sequence - MAX_PENDING_EVENTS)});
+        }
+        // Lets a listener in the other process replay it
+        AlarmProcess.notifyEvents(context);
+    }
+
+    /**
+     * Removes and returns every queued event, oldest first.
+     */
+    List<AlarmEvents.Event> takeEvents() {
+        List<AlarmEvents.Event> events = new ArrayList<>();
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            try (Cursor cursor = db.query(TABLE_EVENTS,
+                    new String[]{COLUMN_TYPE, COLUMN_ID, COLUMN_TIME, COLUMN_VALUE},
+                    null, null, null, null, COLUMN_SEQUENCE + " ASC")) {
+                while (cursor.moveToNext()) {
+                    events.add(new AlarmEvents.Event(
+                            cursor.getInt(0),
+                            cursor.getInt(1),
+                            cursor.getLong(2),
+                            cursor.getLong(3)
+                    ));
+                }
+            }
+            db.delete(TABLE_EVENTS, null, null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return events;
+    }
+
+    /**
+     * Replaces the stored lesson rules, each encoded as a string, in one transaction.
+     */
+    void replaceLessonRules(List<String> rules) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_RULES, null, null);
+            SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE_RULES
+                    + " (" + COLUMN_POSITION + ", " + COLUMN_RULE + ") VALUES (?, ?)");
+            for (int i = 0; i < rules.size(); i++) {
+                insert.bindLong(1, i);
+                insert.bindString(2, rules.get(i));
+                insert.executeInsert();
+            }
+            insert.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        AlarmProcess.notifyChanged(context);
+    }
+
+    /**
+     * Returns the stored lesson rules in the order they were given.
+     */
+    List<String> getLessonRules() {
+        List<String> rules = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_RULES, new String[]{COLUMN_RULE},
+                null, null, null, null, COLUMN_POSITION + " ASC")) {
+            while (cursor.moveToNext()) {
+                rules.add(cursor.getString(0));
+            }
+        }
+        return rules;
+    }
+
+    long getLong(String key, long defaultValue) {
+        try (Cursor cursor = querySetting(key)) {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : defaultValue;
+        }
+    }
+
+    String getString(String key) {
+        try (Cursor cursor = querySetting(key)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    void putLong(String key, long value) {
+        ContentValues values = new ContentValues(2);
+        values.put(COLUMN_KEY, key);
+        values.put(COLUMN_VALUE, value);
+        putSetting(values);
+    }
+
+    void putString(String key, String value) {
+        ContentValues values = new ContentValues(2);
+        values.put(COLUMN_KEY, key);
+        values.put(COLUMN_VALUE, value);
+        putSetting(values);
+    }
+
+    private Cursor querySetting(String key) {
+        return getReadableDatabase().query(TABLE_SETTINGS, new String[]{COLUMN_VALUE},
+                COLUMN_KEY + " = ?", new String[]{key}, null, null, null);
+    }
+
+    private void putSetting(ContentValues values) {
+        getWritableDatabase().insertWithOnConflict(TABLE_SETTINGS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        AlarmProcess.notifyChanged(context);
+    }
+
+    private static void bindNullableString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.zuwad;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Trace of the native alarm hot paths, kept in place of string logging.
+ *
+ * Events are fixed-size records (type, alarm ID, wall-clock time, one value) written into
+ * a preallocated ring of the last {@link #CAPACITY} events. Recording claims a slot with a
+ * single atomic increment and writes four longs, so it neither allocates nor locks.
+ * Readers use the slot's sequence number to skip records that were being overwritten.
+ * The ring is dumped over the alarm metrics channel or to a file for support cases.
+ * Each process keeps its own ring. The {@code :alarm} process saves its ring to a file
+ * after each wakeup, see {@link #persist}, and the dump merges that file with the main
+ * process's ring by time. Sequence numbers are per process.
+ */
+final class AlarmTrace {
+    static final int SCHEDULE = 1;
+    static final int SCHEDULE_BATCH = 2;
+    static final int SYNC = 3;
+    static final int CANCEL = 4;
+    static final int CANCEL_ALL = 5;
+    static final int ARM = 6;
+    static final int DISARM = 7;
+    static final int RECEIVE = 8;
+    static final int DELIVER = 9;
+    static final int DELIVERED = 10;
+    static final int DISMISS = 11;
+    static final int WINDOW_START = 12;
+    static final int WINDOW_STOP = 13;
+    static final int ENGINE_WARM = 14;
+    static final int ENGINE_RELEASE = 15;
+    static final int BOOT_REARM = 16;
+    static final int TAP = 17;
+    static final int ARM_REMINDER = 18;
+    static final int DISARM_REMINDER = 19;
+    static final int TRIM_MEMORY = 20;
+
+    private static final String[] EVENT_NAMES = {
+            "?", "schedule", "schedule_batch", "sync", "cancel", "cancel_all", "arm", "disarm",
+            "receive", "deliver", "delivered", "dismiss", "window_start", "window_stop",
+            "engine_warm", "engine_release", "boot_rearm", "tap", "arm_reminder", "disarm_reminder",
+            "trim_memory"};
+
+    private static final int CAPACITY = 1024; // power of two
+    private static final int MASK = CAPACITY - 1;
+
+    // Each record is (sequence, type << 32 | alarm ID, time, value). The sequence is
+    // cleared while the record is written and set to its 1-based number afterwards.
+    private static final int RECORD_SLOTS = 4;
+    private static final long WRITING = 0;
+
+    private static final String FILE_NAME = "alarm_trace_alarm.bin";
+    private static final int FORMAT_VERSION = 1;
+
+    private static final AtomicLongArray records = new AtomicLongArray(CAPACITY * RECORD_SLOTS);
+    private static final AtomicLong cursor = new AtomicLong();
+    private static volatile boolean enabled = true;
+
+    // Allocated on the first save, in the alarm process only
+    private static ByteBuffer persistBuffer;
+
+    private AlarmTrace() {
+    }
+
+    static void setEnabled(boolean traceEnabled) {
+        enabled = traceEnabled;
+    }
+
+    static void record(int type, int alarmId, long value) {
+        if (!enabled) {
+            return;
+        }
+
+        long sequence = cursor.getAndIncrement();
+        int base = (int) (sequence & MASK) * RECORD_SLOTS;
+        records.set(base, WRITING);
+        records.lazySet(base + 1, ((long) type << 32) | (alarmId & 0xFFFFFFFFL));
+        records.lazySet(base + 2, System.currentTimeMillis());
+        records.lazySet(base + 3, value);
+        records.lazySet(base, sequence + 1);
+    }
+
+    static void record(int type, int alarmId) {
+        record(type, alarmId, 0);
+    }
+
+    /**
+     * Saves the ring of the {@code :alarm} process so the main process can include it in
+     * its dump. Does nothing in the main process. Called on the alarm thread once per
+     * wakeup rather than per event.
+     */
+    static synchronized void persist(Context context) {
+        if (!AlarmProcess.isAlarmProcess(context)) {
+            return;
+        }
+        if (persistBuffer == null) {
+            persistBuffer = ByteBuffer.allocate(8 + CAPACITY * RECORD_SLOTS * 8);
+        }
+
+        ByteBuffer buffer = persistBuffer;
+        buffer.clear();
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putInt(0);
+        int count = 0;
+        long end = cursor.get();
+        for (long sequence = Math.max(0, end - CAPACITY); sequence < end; sequence++) {
+            int base = (int) (sequence & MASK) * RECORD_SLOTS;
+            long before = records.get(base);
+            long typeAndId = records.get(base + 1);
+            long time = records.get(base + 2);
+            long value = records.get(base + 3);
+            if (before != sequence + 1 || records.get(base) != before) {
+                continue;
+            }
+            buffer.putLong(sequence);
+            buffer.putLong(typeAndId);
+            buffer.putLong(time);
+            buffer.putLong(value);
+            count++;
+        }
+        buffer.putInt(4, count);
+
+        AtomicFile file = traceFile(context);
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            out.write(buffer.array(), 0, buffer.position());
+            file.finishWrite(out);
+        } catch (IOException e) {
+            if (out != null) {
+                file.failWrite(out);
+            }
+            android.util.Log.e("AlarmTrace", "Error saving trace", e);
+        }
+    }
+
+    /**
+     * Returns the buffered events of both processes, oldest first, as a flat list of
+     * (sequence, event, alarm ID, time, value) records.
+     */
+    static List<Object> snapshot(Context context) {
+        List<long[]> merged = new ArrayList<>();
+        long end = cursor.get();
+        for (long sequence = Math.max(0, end - CAPACITY); sequence < end; sequence++) {
+            int base = (int) (sequence & MASK) * RECORD_SLOTS;
+            long before = records.get(base);
+            long typeAndId = records.get(base + 1);
+            long time = records.get(base + 2);
+            long value = records.get(base + 3);
+            if (before != sequence + 1 || records.get(base) != before) {
+                // Overwritten or still being written
+                continue;
+            }
+            merged.add(new long[]{sequence, typeAndId, time, value});
+        }
+        if (!AlarmProcess.isAlarmProcess(context)) {
+            readPersisted(context, merged);
+            merged.sort((a, b) -> Long.compare(a[2], b[2]));
+        }
+
+        List<Object> events = new ArrayList<>(merged.size() * 5);
+        for (long[] record : merged) {
+            events.add(record[0]);
+            events.add(eventName((int) (record[1] >>> 32)));
+            events.add((int) record[1]);
+            events.add(record[2]);
+            events.add(record[3]);
+        }
+        return events;
+    }
+
+    /**
+     * Writes the buffered events as text to {@code path}, or to the app's external files
+     * directory if no path is given. Returns the file written.
+     */
+    static File dump(Context context, String path) throws IOException {
+        File target;
+        if (path != null) {
+            target = new File(path);
+        } else {
+            File directory = context.getExternalFilesDir(null);
+            target = new File(directory != null ? directory : context.getFilesDir(), "alarm_trace.txt");
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        List<Object> events = snapshot(context);
+        try (FileWriter writer = new FileWriter(target)) {
+            for (int i = 0; i + 5 <= events.size(); i += 5) {
+                writer.write(events.get(i) + " " + format.format(new Date((Long) events.get(i + 3)))
+                        + " " + events.get(i + 1) + " id=" + events.get(i + 2)
+                        + " value=" + events.get(i + 4) + "\n");
+            }
+        }
+        return target;
+    }
+
+    // Adds the records saved by the alarm process
+    private static void readPersisted(Context context, List<long[]> records) {
+        AtomicFile file = traceFile(context);
+        if (!file.getBaseFile().exists()) {
+            return;
+        }
+        try {
+            ByteBuffer data = ByteBuffer.wrap(file.readFully());
+            if (data.remaining() < 8 || data.getInt() != FORMAT_VERSION) {
+                return;
+            }
+            int count = data.getInt();
+            if (count < 0 || data.remaining() != count * RECORD_SLOTS * 8) {
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                records.add(new long[]{data.getLong(), data.getLong(), data.getLong(), data.getLong()});
+            }
+        } catch (IOException e) {
+            android.util.Log.e("AlarmTrace", "Error loading trace", e);
+        }
+    }
+
+    private static AtomicFile traceFile(Context context) {
+        return new AtomicFile(new File(context.getNoBackupFilesDir(), FILE_NAME));
+    }
+
+    private static String eventName(int type) {
+        return type > 0 && type < EVENT_NAMES.length ? EVENT_NAMES[type] : EVENT_NAMES[0];
+    }
+}
@@ -0,0 +1,16 @@
+package com.zuwad;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Warms the Flutter engine in the main process when the {@code :alarm} process asks for
+ * it, when the foreground lead window before an alarm opens; see {@link AlarmEngineWarmer}.
+ */
+public class AlarmWarmUpReceiver extends BroadcastReceiver {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        AlarmEngineWarmer.warmUp(context);
+    }
+}
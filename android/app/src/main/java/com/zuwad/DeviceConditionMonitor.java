@@ -0,0 +1,131 @@
+package com.zuwad;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+import io.flutter.plugin.common.EventChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams the device conditions that limit meeting quality to Dart: the thermal status,
+ * whether battery saver is on, and the battery level.
+ *
+ * Listeners are registered only while Dart listens. Every event carries the full state,
+ * and an event is sent only when one of the values changed, so the frequent battery
+ * broadcasts do not reach Dart unless the percentage moved.
+ */
+final class DeviceConditionMonitor implements EventChannel.StreamHandler {
+    private final Context context;
+    private final PowerManager powerManager;
+
+    private EventChannel.EventSink events;
+    private PowerManager.OnThermalStatusChangedListener thermalListener;
+
+    // Last reported state; the battery level is -1 if unknown
+    private int thermalStatus;
+    private int batteryLevel = -1;
+    private boolean charging;
+    private boolean powerSave;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
+                onBatteryChanged(intent);
+            } else {
+                update(thermalStatus, powerManager.isPowerSaveMode(), batteryLevel, charging);
+            }
+        }
+    };
+
+    DeviceConditionMonitor(Context context) {
+        this.context = context.getApplicationContext();
+        this.powerManager = (PowerManager) this.context.getSystemService(Context.POWER_SERVICE);
+    }
+
+    @Override
+    public void onListen(Object arguments, EventChannel.EventSink sink) {
+        stop();
+        events = sink;
+
+        thermalStatus = 0;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            thermalStatus = powerManager.getCurrentThermalStatus();
+            // Called on the main thread, like the receiver
+            thermalListener = status -> update(status, powerSave, batteryLevel, charging);
+            powerManager.addThermalStatusListener(thermalListener);
+        }
+        powerSave = powerManager.isPowerSaveMode();
+
+        IntentFilter filter = new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        filter.addAction(Intent.ACTION_BATTERY_CHANGED);
+        // Battery changes are sticky, so this returns the current level right away
+        Intent battery = context.registerReceiver(receiver, filter);
+        batteryLevel = battery != null ? batteryLevelOf(battery) : -1;
+        charging = battery != null && isCharging(battery);
+        send();
+    }
+
+    @Override
+    public void onCancel(Object arguments) {
+        stop();
+    }
+
+    /**
+     * Unregisters all listeners. Safe to call when not listening.
+     */
+    void stop() {
+        if (events == null) {
+            return;
+        }
+        events = null;
+        if (thermalListener != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            powerManager.removeThermalStatusListener(thermalListener);
+        }
+        thermalListener = null;
+        context.unregisterReceiver(receiver);
+    }
+
+    private void onBatteryChanged(Intent intent) {
+        update(thermalStatus, powerSave, batteryLevelOf(intent), isCharging(intent));
+    }
+
+    private static int batteryLevelOf(Intent intent) {
+        int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        return level >= 0 && scale > 0 ? level * 100 / scale : -1;
+    }
+
+    private static boolean isCharging(Intent intent) {
+        return intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
+
+    private void update(int newThermalStatus, boolean newPowerSave, int newBatteryLevel, boolean newCharging) {
+        if (newThermalStatus == thermalStatus && newPowerSave == powerSave
+                && newBatteryLevel == batteryLevel && newCharging == charging) {
+            return;
+        }
+        thermalStatus = newThermalStatus;
+        powerSave = newPowerSave;
+        batteryLevel = newBatteryLevel;
+        charging = newCharging;
+        send();
+    }
+
+    private void send() {
+        if (events == null) {
+            return;
+        }
+        Map<String, Object> state = new HashMap<>();
+        state.put("thermal_status", thermalStatus);
+        state.put("power_save", powerSave);
+        state.put("battery_level", batteryLevel);
+        state.put("charging", charging);
+        events.success(state);
+    }
+}
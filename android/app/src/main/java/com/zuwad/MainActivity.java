@@ -2,25 +2,62 @@ package com.zuwad;
 
 import android.os.Build;
 import android.os.Bundle;
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.app.PictureInPictureParams;
+import android.content.res.Configuration;
+import android.graphics.Rect;
 import android.util.Rational;
+import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
 import androidx.annotation.NonNull;
 import androidx.core.view.WindowCompat;
 import io.flutter.embedding.android.FlutterActivity;
 import io.flutter.embedding.engine.FlutterEngine;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class MainActivity extends FlutterActivity {
     private static final String CHANNEL_PIP = "com.zuwad/pip";
     private static final String CHANNEL_FOREGROUND = "com.zuwad/foreground_alarm";
-    private static final String CHANNEL_NATIVE_ALARM = "com.zuwad/native_alarm";
+    private static final String CHANNEL_NATIVE_ALARM = NativeAlarmMethodHandler.CHANNEL;
     private static final String CHANNEL_SETTINGS = "com.zuwad/settings";
+    private static final String CHANNEL_ALARM_METRICS = "com.zuwad/alarm_metrics";
+    private static final String CHANNEL_DEVICE_CONDITIONS = "com.zuwad/device_conditions";
+    private static final String CHANNEL_ALARM_EVENTS = "com.zuwad/alarm_events";
+    private static final String CHANNEL_MEMORY_PRESSURE = "com.zuwad/memory_pressure";
     private boolean isPipEnabled = false;
 
+    // PiP params are rebuilt only when one of their inputs changes
+    private Rational pipAspectRatio = new Rational(16, 9);
+    private Rect pipSourceRect;
+    private PictureInPictureParams pipParams;
+    private MethodChannel pipChannel;
+
+    // Aspect ratio limits enforced by PictureInPictureParams
+    private static final Rational MIN_PIP_ASPECT_RATIO = new Rational(100, 239);
+    private static final Rational MAX_PIP_ASPECT_RATIO = new Rational(239, 100);
+
+    // Engine pre-warmed by AlarmEngineWarmer, resolved once per activity
+    private boolean engineResolved = false;
+    private String warmEngineId;
+
+    // Alarm notification tap not yet acknowledged by Dart; read from the alarm task queue
+    private final AtomicReference<Map<String, Object>> pendingAlarmTap = new AtomicReference<>();
+    private MethodChannel nativeAlarmChannel;
+    private AlarmEvents alarmEvents;
+
+    // Thermal, battery saver and battery level stream for meeting quality
+    private DeviceConditionMonitor deviceConditionMonitor;
+
+    // Trim levels and heap usage for Dart; native caches are shed without it as well
+    private MemoryPressureMonitor memoryPressureMonitor;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         // Enable edge-to-edge display
@@ -29,6 +66,15 @@ public class MainActivity extends FlutterActivity {
             WindowCompat.setDecorFitsSystemWindows(getWindow(), false);
         }
 
+        // Restored activities re-deliver the original intent; only a fresh launch is a tap
+        if (savedInstanceState == null) {
+            Map<String, Object> alarmTap = alarmTapOf(getIntent());
+            if (alarmTap != null) {
+                AlarmTrace.record(AlarmTrace.TAP, (Integer) alarmTap.get("alarm_id"));
+            }
+            pendingAlarmTap.set(alarmTap);
+        }
+
         super.onCreate(savedInstanceState);
     }
 
@@ -36,57 +82,128 @@ public class MainActivity extends FlutterActivity {
     protected void onNewIntent(Intent intent) {
         super.onNewIntent(intent);
         // Handle alarm notification tap
-        if (intent != null && intent.getExtras() != null) {
-            Bundle extras = intent.getExtras();
-            if (extras.containsKey("alarm_id")) {
-                // Alarm was triggered, notify Flutter
-                // This will be handled by the alarm plugin
-            }
+        Map<String, Object> alarmTap = alarmTapOf(intent);
+        if (alarmTap != null) {
+            AlarmTrace.record(AlarmTrace.TAP, (Integer) alarmTap.get("alarm_id"));
+            pendingAlarmTap.set(alarmTap);
+            deliverAlarmTap();
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Opening the app silences a ringing alarm, which plays in the alarm process
+        AlarmProcess.silence(this);
+
+        // The exact alarm permission is usually changed in system settings while we are away
+        Context appContext = getApplicationContext();
+        AlarmExecutor.execute(() -> AlarmEvents.checkExactAlarmPermission(appContext));
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        // Flutter tells the framework itself, which clears the image cache
+        super.onTrimMemory(level);
+        if (memoryPressureMonitor != null) {
+            memoryPressureMonitor.onTrimMemory(level);
+        } else {
+            MemoryPressureMonitor.shed(level);
         }
     }
 
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        onTrimMemory(MemoryPressureMonitor.LOW_MEMORY);
+    }
+
+    @Override
+    public String getCachedEngineId() {
+        // Attach to the engine warmed before the alarm, if there is one
+        if (!engineResolved) {
+            engineResolved = true;
+            warmEngineId = AlarmEngineWarmer.claim();
+        }
+        return warmEngineId;
+    }
+
+    @Override
+    public boolean shouldDestroyEngineWithHost() {
+        // A claimed warm engine is released with the activity, like one it created itself
+        return true;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (deviceConditionMonitor != null) {
+            deviceConditionMonitor.stop();
+        }
+        if (alarmEvents != null) {
+            alarmEvents.detach();
+        }
+        AlarmEngineWarmer.onHostDestroyed();
+    }
+
     @Override
     public void configureFlutterEngine(@NonNull FlutterEngine flutterEngine) {
         super.configureFlutterEngine(flutterEngine);
-
-        // PiP Method Channel
-        new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), CHANNEL_PIP)
-            .setMethodCallHandler((call, result) -> {
-                switch (call.method) {
-                    case "enablePip":
-                        isPipEnabled = true;
-                        updatePipParams(true);
-                        result.success(true);
-                        break;
-                    case "disablePip":
-                        isPipEnabled = false;
-                        updatePipParams(false);
+        BinaryMessenger messenger = flutterEngine.getDartExecutor().getBinaryMessenger();
+
+        // AlarmManager, database and service calls run off the main thread. Both alarm
+        // channels share one serial queue so calls keep the order Dart made them in.
+        BinaryMessenger.TaskQueue alarmTaskQueue = messenger.makeBackgroundTaskQueue();
+
+        // PiP Method Channel - stays on the main thread, it drives the window
+        pipChannel = new MethodChannel(messenger, CHANNEL_PIP);
+        pipChannel.setMethodCallHandler((call, result) -> {
+            switch (call.method) {
+                case "enablePip":
+                    isPipEnabled = true;
+                    updatePipParams();
+                    result.success(true);
+                    break;
+                case "disablePip":
+                    isPipEnabled = false;
+                    updatePipParams();
+                    result.success(true);
+                    break;
+                case "enterPip":
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                        enterPictureInPictureMode(pipParams());
                         result.success(true);
-                        break;
-                    case "enterPip":
-                        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                            PictureInPictureParams.Builder builder = new PictureInPictureParams.Builder()
-                                .setAspectRatio(new Rational(16, 9));
-                            enterPictureInPictureMode(builder.build());
-                            result.success(true);
-                        } else {
-                            result.success(false);
-                        }
-                        break;
-                    default:
-                        result.notImplemented();
-                        break;
-                }
-            });
+                    } else {
+                        result.success(false);
+                    }
+                    break;
+                case "setPipSource":
+                    // Aspect ratio of the active video track and where it is drawn
+                    setPipSource(call.argument("width"), call.argument("height"),
+                            call.argument("left"), call.argument("top"),
+                            call.argument("right"), call.argument("bottom"));
+                    result.success(true);
+                    break;
+                default:
+                    result.notImplemented();
+                    break;
+            }
+        });
 
         // Foreground Alarm Service Method Channel
-        new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), CHANNEL_FOREGROUND)
+        new MethodChannel(messenger, CHANNEL_FOREGROUND, alarmTaskQueue)
             .setMethodCallHandler((call, result) -> {
                 if (call.method.equals("startForegroundService")) {
-                    startAlarmForegroundService();
+                    // Runs only within the lead window before the next armed alarm
+                    Number leadWindowMs = call.argument("lead_window_ms");
+                    AlarmPreferences.setForegroundLeadMs(this, leadWindowMs != null
+                            ? leadWindowMs.longValue() : AlarmPreferences.DEFAULT_FOREGROUND_LEAD_MS);
+                    NativeAlarmScheduler.refresh(this);
                     result.success(true);
                 } else if (call.method.equals("stopForegroundService")) {
-                    stopAlarmForegroundService();
+                    AlarmPreferences.setForegroundLeadMs(this, 0);
+                    NativeAlarmScheduler.refresh(this);
+                    AlarmForegroundService.stopWindow(this);
                     result.success(true);
                 } else {
                     result.notImplemented();
@@ -94,24 +211,39 @@ public class MainActivity extends FlutterActivity {
             });
 
         // Native Alarm Method Channel
-        new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), CHANNEL_NATIVE_ALARM)
+        nativeAlarmChannel = new MethodChannel(messenger, CHANNEL_NATIVE_ALARM, alarmTaskQueue);
+        nativeAlarmChannel.setMethodCallHandler(new NativeAlarmMethodHandler(this, pendingAlarmTap));
+
+        // A warm engine is already running Dart and can take the tap right away
+        deliverAlarmTap();
+
+        // Alarm Metrics Method Channel - delivery histograms and the alarm trace
+        new MethodChannel(messenger, CHANNEL_ALARM_METRICS, alarmTaskQueue)
             .setMethodCallHandler((call, result) -> {
-                if (call.method.equals("initialize")) {
-                    result.success(true);
-                } else if (call.method.equals("scheduleAlarm")) {
-                    int alarmId = call.argument("alarm_id");
-                    long timestamp = call.argument("timestamp");
-                    String title = call.argument("title");
-                    String body = call.argument("body");
-
-                    boolean success = scheduleNativeAlarm(alarmId, timestamp, title, body);
-                    result.success(success);
-                } else if (call.method.equals("cancelAlarm")) {
-                    int alarmId = call.argument("alarm_id");
-                    cancelNativeAlarm(alarmId);
+                if (call.method.equals("getSnapshot")) {
+                    result.success(AlarmMetrics.snapshot(this));
+                } else if (call.method.equals("exportSnapshot")) {
+                    String path = call.argument("path");
+                    try {
+                        result.success(AlarmMetrics.export(this, path).getAbsolutePath());
+                    } catch (Exception e) {
+                        result.error("EXPORT_FAILED", e.getMessage(), null);
+                    }
+                } else if (call.method.equals("reset")) {
+                    AlarmMetrics.reset(this);
                     result.success(null);
-                } else if (call.method.equals("cancelAllAlarms")) {
-                    cancelAllNativeAlarms();
+                } else if (call.method.equals("getTrace")) {
+                    result.success(AlarmTrace.snapshot(this));
+                } else if (call.method.equals("exportTrace")) {
+                    String path = call.argument("path");
+                    try {
+                        result.success(AlarmTrace.dump(this, path).getAbsolutePath());
+                    } catch (Exception e) {
+                        result.error("EXPORT_FAILED", e.getMessage(), null);
+                    }
+                } else if (call.method.equals("setTraceEnabled")) {
+                    Boolean enabled = call.argument("enabled");
+                    AlarmTrace.setEnabled(enabled == null || enabled);
                     result.success(null);
                 } else {
                     result.notImplemented();
@@ -119,7 +251,7 @@ public class MainActivity extends FlutterActivity {
             });
 
         // Settings Method Channel - Open specific permission settings
-        new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), CHANNEL_SETTINGS)
+        new MethodChannel(messenger, CHANNEL_SETTINGS)
             .setMethodCallHandler((call, result) -> {
                 if (call.method.equals("openPermissionSettings")) {
                     openAppPermissionSettings();
@@ -134,140 +266,125 @@ public class MainActivity extends FlutterActivity {
                     result.notImplemented();
                 }
             });
+
+        // Alarm Events Event Channel - fired, dismissed, rescheduled and permission changes,
+        // including those raised while no engine was attached
+        alarmEvents = new AlarmEvents(this);
+        new EventChannel(messenger, CHANNEL_ALARM_EVENTS).setStreamHandler(alarmEvents);
+
+        // Device Conditions Event Channel - listeners are registered on the main thread
+        deviceConditionMonitor = new DeviceConditionMonitor(this);
+        new EventChannel(messenger, CHANNEL_DEVICE_CONDITIONS).setStreamHandler(deviceConditionMonitor);
+
+        // Memory Pressure Event Channel - trim levels with heap and native heap usage
+        memoryPressureMonitor = new MemoryPressureMonitor(this);
+        new EventChannel(messenger, CHANNEL_MEMORY_PRESSURE).setStreamHandler(memoryPressureMonitor);
     }
 
-    private void startAlarmForegroundService() {
-        Intent serviceIntent = new Intent(this, AlarmForegroundService.class);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            startForegroundService(serviceIntent);
-        } else {
-            startService(serviceIntent);
+    /**
+     * Pushes the pending alarm tap to Dart. If Dart has not registered its handler yet,
+     * the tap stays pending until Dart asks for it with getLaunchAlarm.
+     */
+    private void deliverAlarmTap() {
+        Map<String, Object> alarmTap = pendingAlarmTap.get();
+        if (alarmTap == null || nativeAlarmChannel == null) {
+            return;
         }
-    }
 
-    private void stopAlarmForegroundService() {
-        Intent serviceIntent = new Intent(this, AlarmForegroundService.class);
-        stopService(serviceIntent);
-    }
+        nativeAlarmChannel.invokeMethod("onAlarmTapped", alarmTap, new MethodChannel.Result() {
+            @Override
+            public void success(Object result) {
+                pendingAlarmTap.compareAndSet(alarmTap, null);
+            }
 
-    private boolean scheduleNativeAlarm(int alarmId, long timestamp, String title, String body) {
-        try {
-            android.util.Log.d("MainActivity", "Scheduling native alarm:");
-            android.util.Log.d("MainActivity", "  ID: " + alarmId);
-            android.util.Log.d("MainActivity", "  Timestamp: " + timestamp);
-            android.util.Log.d("MainActivity", "  Time: " + new java.util.Date(timestamp));
-            android.util.Log.d("MainActivity", "  Title: " + title);
-            android.util.Log.d("MainActivity", "  Body: " + body);
-
-            AlarmManager alarmManager = (AlarmManager) getSystemService(ALARM_SERVICE);
-            Intent intent = new Intent("com.zuwad.ALARM_TRIGGER");
-            intent.setClass(this, AlarmReceiver.class);
-            intent.putExtra("alarm_id", alarmId);
-            intent.putExtra("title", title);
-            intent.putExtra("body", body);
-
-            android.util.Log.d("MainActivity", "Intent created: " + intent.toString());
-
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    this,
-                    alarmId,
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-
-            android.util.Log.d("MainActivity", "PendingIntent created");
+            @Override
+            public void error(String errorCode, String errorMessage, Object errorDetails) {
+                android.util.Log.e("MainActivity", "Error delivering alarm tap: " + errorMessage);
+            }
 
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-                // Android 12+ requires exact alarm permission
-                boolean canSchedule = alarmManager.canScheduleExactAlarms();
-                android.util.Log.d("MainActivity", "Android 12+, canScheduleExactAlarms: " + canSchedule);
-
-                if (canSchedule) {
-                    alarmManager.setExactAndAllowWhileIdle(
-                            AlarmManager.RTC_WAKEUP,
-                            timestamp,
-                            pendingIntent
-                    );
-                    android.util.Log.d("MainActivity", "Used setExactAndAllowWhileIdle");
-                } else {
-                    // Fallback to setAlarmClock if exact alarm not allowed
-                    alarmManager.setAlarmClock(
-                            new AlarmManager.AlarmClockInfo(timestamp, pendingIntent),
-                            pendingIntent
-                    );
-                    android.util.Log.d("MainActivity", "Used setAlarmClock (exact alarm not allowed)");
-                }
-            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                // Android 6-11
-                alarmManager.setExactAndAllowWhileIdle(
-                        AlarmManager.RTC_WAKEUP,
-                        timestamp,
-                        pendingIntent
-                );
-                android.util.Log.d("MainActivity", "Used setExactAndAllowWhileIdle (Android 6-11)");
-            } else {
-                // Android 5 and below
-                alarmManager.setExact(
-                        AlarmManager.RTC_WAKEUP,
-                        timestamp,
-                        pendingIntent
-                );
-                android.util.Log.d("MainActivity", "Used setExact (Android 5)");
+            @Override
+            public void notImplemented() {
+                // Dart is still starting; it will call getLaunchAlarm
             }
+        });
+    }
 
-            android.util.Log.d("MainActivity", "Alarm scheduled successfully");
-            return true;
-        } catch (Exception e) {
-            android.util.Log.e("MainActivity", "Error scheduling native alarm", e);
-            e.printStackTrace();
-            return false;
+    private static Map<String, Object> alarmTapOf(Intent intent) {
+        if (intent == null || !intent.hasExtra("alarm_id")) {
+            return null;
         }
-    }
 
-    private void cancelNativeAlarm(int alarmId) {
-        try {
-            AlarmManager alarmManager = (AlarmManager) getSystemService(ALARM_SERVICE);
-            Intent intent = new Intent("com.zuwad.ALARM_TRIGGER");
-            intent.setClass(this, AlarmReceiver.class);
-
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    this,
-                    alarmId,
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-
-            alarmManager.cancel(pendingIntent);
-        } catch (Exception e) {
-            e.printStackTrace();
+        Map<String, Object> alarmTap = new HashMap<>(8);
+        alarmTap.put("alarm_id", intent.getIntExtra("alarm_id", 0));
+        if (intent.hasExtra("trigger_at")) {
+            alarmTap.put("trigger_at", intent.getLongExtra("trigger_at", 0));
+        }
+        alarmTap.put("title", intent.getStringExtra("title"));
+        alarmTap.put("body", intent.getStringExtra("body"));
+        int[] alarmIds = intent.getIntArrayExtra("alarm_ids");
+        if (alarmIds != null) {
+            List<Integer> ids = new ArrayList<>(alarmIds.length);
+            for (int alarmId : alarmIds) {
+                ids.add(alarmId);
+            }
+            alarmTap.put("alarm_ids", ids);
         }
+        return alarmTap;
     }
 
-    private void cancelAllNativeAlarms() {
-        try {
-            AlarmManager alarmManager = (AlarmManager) getSystemService(ALARM_SERVICE);
-            Intent intent = new Intent("com.zuwad.ALARM_TRIGGER");
-            intent.setClass(this, AlarmReceiver.class);
-
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    this,
-                    0,
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-
-            alarmManager.cancel(pendingIntent);
-        } catch (Exception e) {
-            e.printStackTrace();
+    private void updatePipParams() {
+        pipParams = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            setPictureInPictureParams(pipParams());
         }
     }
 
-    private void updatePipParams(boolean autoEnter) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+    /**
+     * Returns the cached PiP params, building them if an input changed since the last call.
+     */
+    private PictureInPictureParams pipParams() {
+        if (pipParams == null) {
             PictureInPictureParams.Builder builder = new PictureInPictureParams.Builder()
-                .setAutoEnterEnabled(autoEnter)
-                .setAspectRatio(new Rational(16, 9));
-            setPictureInPictureParams(builder.build());
+                .setAspectRatio(pipAspectRatio)
+                .setSourceRectHint(pipSourceRect);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                builder.setAutoEnterEnabled(isPipEnabled);
+            }
+            pipParams = builder.build();
+        }
+        return pipParams;
+    }
+
+    private void setPipSource(Number width, Number height, Number left, Number top, Number right,
+                              Number bottom) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+
+        Rational aspectRatio = pipAspectRatio;
+        if (width != null && height != null && width.intValue() > 0 && height.intValue() > 0) {
+            aspectRatio = new Rational(width.intValue(), height.intValue());
+            if (aspectRatio.floatValue() < MIN_PIP_ASPECT_RATIO.floatValue()) {
+                aspectRatio = MIN_PIP_ASPECT_RATIO;
+            } else if (aspectRatio.floatValue() > MAX_PIP_ASPECT_RATIO.floatValue()) {
+                aspectRatio = MAX_PIP_ASPECT_RATIO;
+            }
+        }
+
+        Rect sourceRect = null;
+        if (left != null && top != null && right != null && bottom != null) {
+            sourceRect = new Rect(left.intValue(), top.intValue(), right.intValue(), bottom.intValue());
+        }
+
+        if (aspectRatio.equals(pipAspectRatio)
+                && (sourceRect == null ? pipSourceRect == null : sourceRect.equals(pipSourceRect))) {
+            return;
+        }
+        pipAspectRatio = aspectRatio;
+        pipSourceRect = sourceRect;
+        pipParams = null;
+        if (isPipEnabled) {
+            setPictureInPictureParams(pipParams());
         }
     }
 
@@ -276,10 +393,37 @@ public class MainActivity extends FlutterActivity {
         super.onUserLeaveHint();
         // Only auto-enter PiP when enabled (i.e., when on meeting page)
         if (isPipEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            PictureInPictureParams.Builder builder = new PictureInPictureParams.Builder()
-                .setAspectRatio(new Rational(16, 9));
-            enterPictureInPictureMode(builder.build());
+            enterPictureInPictureMode(pipParams());
+        }
+    }
+
+    @Override
+    public void onPictureInPictureModeChanged(boolean isInPictureInPictureMode, Configuration newConfig) {
+        super.onPictureInPictureModeChanged(isInPictureInPictureMode, newConfig);
+        sendPipState(isInPictureInPictureMode, newConfig);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        // The PiP window was resized
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && isInPictureInPictureMode()) {
+            sendPipState(true, newConfig);
+        }
+    }
+
+    /**
+     * Tells the meeting page whether it is in PiP and the window size in dp.
+     */
+    private void sendPipState(boolean inPip, Configuration config) {
+        if (pipChannel == null) {
+            return;
         }
+        Map<String, Object> state = new HashMap<>(4);
+        state.put("in_pip", inPip);
+        state.put("width", config.screenWidthDp);
+        state.put("height", config.screenHeightDp);
+        pipChannel.invokeMethod("onPipModeChanged", state);
     }
 
     private void openAppPermissionSettings() {
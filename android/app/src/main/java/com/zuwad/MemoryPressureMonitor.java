@@ -0,0 +1,88 @@
+package com.zuwad;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.Debug;
+import io.flutter.plugin.common.EventChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Forwards memory pressure to Dart: every onTrimMemory level, with the Java and native
+ * heap usage and the system's available memory, so Dart can drop what it can rebuild.
+ *
+ * Independently of Dart, native caches are shed once the level says the process is at
+ * risk: the warm alarm engine and the prepared alarm player. Both are rebuilt on demand,
+ * and a process that gives them back is less likely to be killed, taking the alarms and
+ * a running meeting with it.
+ */
+final class MemoryPressureMonitor implements EventChannel.StreamHandler {
+    // onLowMemory has no level of its own; it is reported as the most severe one
+    static final int LOW_MEMORY = ComponentCallbacks2.TRIM_MEMORY_COMPLETE;
+
+    private final Context context;
+    private EventChannel.EventSink events;
+
+    MemoryPressureMonitor(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public void onListen(Object arguments, EventChannel.EventSink sink) {
+        events = sink;
+        // Current usage, with no trim level
+        sink.success(snapshot(0));
+    }
+
+    @Override
+    public void onCancel(Object arguments) {
+        events = null;
+    }
+
+    /**
+     * Sheds native caches for {@code level} and tells Dart. Called on the main thread.
+     */
+    void onTrimMemory(int level) {
+        shed(level);
+        if (events != null) {
+            events.success(snapshot(level));
+        }
+    }
+
+    /**
+     * Releases the native caches that can be rebuilt on demand, if {@code level} asks for
+     * it. {@link ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN} only means the UI went away
+     * and sheds nothing. Called on the main thread.
+     */
+    static void shed(int level) {
+        if (level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            return;
+        }
+        AlarmTrace.record(AlarmTrace.TRIM_MEMORY, level);
+        // Kept if the app attached to it; otherwise started again for the next alarm
+        AlarmEngineWarmer.release();
+        // Kept while ringing; otherwise prepared again when the alarm fires
+        AlarmPlayer.release();
+    }
+
+    private Map<String, Object> snapshot(int level) {
+        Runtime runtime = Runtime.getRuntime();
+        Map<String, Object> state = new HashMap<>(8);
+        state.put("level", level);
+        state.put("heap_used", runtime.totalMemory() - runtime.freeMemory());
+        state.put("heap_max", runtime.maxMemory());
+        state.put("native_heap_used", Debug.getNativeHeapAllocatedSize());
+        state.put("native_heap_size", Debug.getNativeHeapSize());
+
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager != null) {
+            ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+            activityManager.getMemoryInfo(memoryInfo);
+            state.put("available", memoryInfo.availMem);
+            state.put("low_memory", memoryInfo.lowMemory);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,113 @@
+package com.zuwad;
+
+import android.content.Context;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Handles the {@link #CHANNEL} channel for any engine: the one attached to
+ * {@link MainActivity} and the headless one run by {@link ScheduleRefreshJob}.
+ *
+ * Calls arrive on the alarm task queue, never on the main thread.
+ */
+final class NativeAlarmMethodHandler implements MethodChannel.MethodCallHandler {
+    static final String CHANNEL = "com.zuwad/native_alarm";
+
+    private static final String TAG = "NativeAlarmMethodHandler";
+
+    private final Context context;
+
+    // Tap that launched the activity; null for engines without one
+    private final AtomicReference<Map<String, Object>> pendingAlarmTap;
+
+    NativeAlarmMethodHandler(Context context, AtomicReference<Map<String, Object>> pendingAlarmTap) {
+        this.context = context.getApplicationContext();
+        this.pendingAlarmTap = pendingAlarmTap;
+    }
+
+    @Override
+    public void onMethodCall(MethodCall call, MethodChannel.Result result) {
+        if (call.method.equals("initialize")) {
+            result.success(true);
+        } else if (call.method.equals("getLaunchAlarm")) {
+            // Cold start: Dart asks for the tap once its handler is ready
+            result.success(pendingAlarmTap != null ? pendingAlarmTap.getAndSet(null) : null);
+        } else if (call.method.equals("scheduleAlarm")) {
+            int alarmId = call.argument("alarm_id");
+            long timestamp = call.argument("timestamp");
+            String title = call.argument("title");
+            String body = call.argument("body");
+            // Optional, absent means a critical alarm
+            Number toleranceMs = call.argument("tolerance_ms");
+
+            // Explicit alarms replace the lesson rules, which would drop them on refresh
+            RecurrenceScheduler.clear(context);
+            boolean success = scheduleNativeAlarm(alarmId, timestamp, title, body,
+                    toleranceMs != null ? toleranceMs.longValue() : 0);
+            result.success(success);
+        } else if (call.method.equals("cancelAlarm")) {
+            int alarmId = call.argument("alarm_id");
+            cancelNativeAlarm(alarmId);
+            result.success(null);
+        } else if (call.method.equals("scheduleAlarms")) {
+            List<Object> alarms = call.argument("alarms");
+            RecurrenceScheduler.clear(context);
+            result.success(NativeAlarmScheduler.scheduleAll(context, alarms));
+        } else if (call.method.equals("cancelAlarms")) {
+            List<Object> alarmIds = call.argument("alarm_ids");
+            result.success(NativeAlarmScheduler.cancelAll(context, alarmIds));
+        } else if (call.method.equals("syncAlarms")) {
+            List<Object> alarms = call.argument("alarms");
+            RecurrenceScheduler.clear(context);
+            result.success(NativeAlarmScheduler.sync(context, alarms));
+        } else if (call.method.equals("setLessonRules")) {
+            List<Object> rules = call.argument("rules");
+            Number occurrences = call.argument("occurrences");
+            try {
+                result.success(RecurrenceScheduler.setRules(context, rules, occurrences.intValue()));
+            } catch (RuntimeException e) {
+                result.error("INVALID_RULE", e.getMessage(), null);
+            }
+        } else if (call.method.equals("setCoalescingWindow")) {
+            Number windowMs = call.argument("window_ms");
+            AlarmPreferences.setCoalescingWindowMs(context, windowMs.longValue());
+            result.success(null);
+        } else if (call.method.equals("cancelAllAlarms")) {
+            cancelAllNativeAlarms();
+            result.success(null);
+        } else {
+            result.notImplemented();
+        }
+    }
+
+    private boolean scheduleNativeAlarm(int alarmId, long timestamp, String title, String body, long toleranceMs) {
+        try {
+            // Traced by the scheduler; see AlarmTrace
+            NativeAlarmScheduler.schedule(context, alarmId, timestamp, title, body, toleranceMs);
+            return true;
+        } catch (Exception e) {
+            android.util.Log.e(TAG, "Error scheduling native alarm", e);
+            return false;
+        }
+    }
+
+    private void cancelNativeAlarm(int alarmId) {
+        try {
+            NativeAlarmScheduler.cancel(context, alarmId);
+        } catch (Exception e) {
+            android.util.Log.e(TAG, "Error cancelling native alarm", e);
+        }
+    }
+
+    private void cancelAllNativeAlarms() {
+        try {
+            RecurrenceScheduler.clear(context);
+            NativeAlarmScheduler.cancelAll(context);
+        } catch (Exception e) {
+            android.util.Log.e(TAG, "Error cancelling native alarms", e);
+        }
+    }
+}
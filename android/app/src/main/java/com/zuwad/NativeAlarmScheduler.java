@@ -0,0 +1,517 @@
+package com.zuwad;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.PowerManager;
+import com.zuwad.alarm.AlarmEntry;
+import com.zuwad.alarm.AlarmIds;
+import com.zuwad.alarm.AlarmRecords;
+import com.zuwad.alarm.AlarmRegistry;
+import com.zuwad.alarm.AlarmStrategy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schedules lesson alarms through two chained AlarmManager alarms.
+ *
+ * Every armed alarm is tracked in an {@link AlarmRegistry}. The earliest critical alarm
+ * is armed exactly on the critical chain; when an early reminder comes before it, the
+ * reminder is armed on a second, windowed chain (see {@link AlarmStrategy}). When either
+ * fires, {@link AlarmReceiver} collects every due alarm through {@link #pollDueAlarms}
+ * and the chains are armed again, so the system holds at most two alarms for us however
+ * many lessons are queued, and reminders never delay or spend the budget of the
+ * critical alarms.
+ *
+ * Every change is written through to {@link AlarmStore} first. The registry is rebuilt
+ * from the store whenever the process has been restarted, the other process changed the
+ * store (see {@link AlarmProcess}), and before each delivery.
+ */
+final class NativeAlarmScheduler {
+    static final String ACTION_ALARM_TRIGGER = "com.zuwad.ALARM_TRIGGER";
+    static final String EXTRA_REMINDER_CHAIN = "reminder_chain";
+
+    // Alarms missed while the device was off are still delivered if they are this recent
+    private static final long MISSED_ALARM_GRACE_MS = 5 * 60 * 1000L;
+
+    // AlarmManager may deliver slightly before the armed time
+    private static final long DUE_TOLERANCE_MS = 1000L;
+
+    // Values of armedTrigger when no trigger time is armed
+    private static final long NOT_ARMED = -1;
+    private static final long ARMED_UNKNOWN = Long.MIN_VALUE;
+
+    private static AlarmRegistry registry;
+    // Trigger times currently armed with AlarmManager. Unknown after a process restart
+    // and after the other process changed the store.
+    private static long armedTrigger = ARMED_UNKNOWN;
+    private static long armedReminderTrigger = ARMED_UNKNOWN;
+    private static long armedReminderWindow;
+
+    private NativeAlarmScheduler() {
+    }
+
+    /**
+     * Schedules a single alarm; critical if {@code toleranceMs} is 0. Returns the name of
+     * the AlarmManager API used, or "queued" if an earlier alarm is already armed.
+     */
+    static synchronized String schedule(Context context, int alarmId, long timestamp, String title, String body,
+                                        long toleranceMs) {
+        AlarmTrace.record(AlarmTrace.SCHEDULE, alarmId, timestamp);
+        AlarmEntry entry = new AlarmEntry(alarmId, timestamp, title, body, toleranceMs);
+        AlarmStore.getInstance(context).put(entry);
+        AlarmReceiver.ensureNotificationChannel(context);
+        AlarmPlayer.cacheSound(context);
+
+        AlarmRegistry alarmRegistry = ensureLoaded(context);
+        AlarmEntry previous = alarmRegistry.get(alarmId);
+        alarmRegistry.put(entry);
+        if (previous != null && previous.triggerAt != timestamp) {
+            AlarmEvents.post(context, AlarmEvents.RESCHEDULED, alarmId, timestamp);
+        }
+        String method = armNext(context);
+        return method != null ? method : "queued";
+    }
+
+    /**
+     * Schedules a batch of alarms in one pass. {@code alarms} is a flat list of
+     * (alarm_id, timestamp, title, body, tolerance_ms) records. The whole batch is stored in one
+     * transaction and the chain is re-armed at most once. Each record gets its own
+     * entry in the returned list so one bad alarm does not fail the rest.
+     */
+    static synchronized List<Boolean> scheduleAll(Context context, List<Object> alarms) {
+        List<Boolean> results = new ArrayList<>();
+        List<AlarmEntry> entries = AlarmRecords.parse(alarms, results);
+        if (entries.isEmpty()) {
+            return results;
+        }
+
+        AlarmStore.getInstance(context).putAll(entries);
+        AlarmReceiver.ensureNotificationChannel(context);
+        AlarmPlayer.cacheSound(context);
+
+        AlarmRegistry alarmRegistry = ensureLoaded(context);
+        for (AlarmEntry entry : entries) {
+            alarmRegistry.put(entry);
+        }
+        armNext(context);
+
+        AlarmTrace.record(AlarmTrace.SCHEDULE_BATCH, entries.size(), results.size());
+        return results;
+    }
+
+    /**
+     * Makes the armed alarms match {@code alarms}, a flat list of (alarm_id, timestamp,
+     * title, body, tolerance_ms) records. Only the differences against the registry are written to the
+     * store, and the chain is re-armed at most once. Returns the number of alarms
+     * inserted, updated and removed.
+     */
+    static synchronized Map<String, Integer> sync(Context context, List<Object> alarms) {
+        return syncEntries(context, AlarmRecords.parse(alarms, new ArrayList<>()));
+    }
+
+    /**
+     * Makes the armed alarms match {@code desired}, as {@link #sync} does
+     * for already decoded alarms.
+     */
+    static synchronized Map<String, Integer> syncEntries(Context context, List<AlarmEntry> desired) {
+        AlarmRegistry alarmRegistry = ensureLoaded(context);
+        AlarmRegistry.Diff diff = alarmRegistry.diff(desired);
+
+        if (!diff.isEmpty()) {
+            List<AlarmEntry> changed = new ArrayList<>(diff.inserts.size() + diff.updates.size());
+            changed.addAll(diff.inserts);
+            changed.addAll(diff.updates);
+
+            int[] deletedIds = new int[diff.deletes.size()];
+            for (int i = 0; i < deletedIds.length; i++) {
+                deletedIds[i] = diff.deletes.get(i).id;
+            }
+
+            AlarmStore store = AlarmStore.getInstance(context);
+            store.putAll(changed);
+            store.removeAll(deletedIds);
+            AlarmReceiver.ensureNotificationChannel(context);
+            AlarmPlayer.cacheSound(context);
+
+            for (AlarmEntry entry : diff.updates) {
+                AlarmEntry previous = alarmRegistry.get(entry.id);
+                if (previous != null && previous.triggerAt != entry.triggerAt) {
+                    AlarmEvents.post(context, AlarmEvents.RESCHEDULED, entry.id, entry.triggerAt);
+                }
+            }
+            for (AlarmEntry entry : changed) {
+                alarmRegistry.put(entry);
+            }
+            for (int alarmId : deletedIds) {
+                alarmRegistry.remove(alarmId);
+            }
+            armNext(context);
+        }
+
+        AlarmTrace.record(AlarmTrace.SYNC, desired.size(),
+                diff.inserts.size() + diff.updates.size() + diff.deletes.size());
+
+        Map<String, Integer> counts = new HashMap<>();
+        counts.put("inserted", diff.inserts.size());
+        counts.put("updated", diff.updates.size());
+        counts.put("removed", diff.deletes.size());
+        return counts;
+    }
+
+    /**
+     * Moves armed alarm {@code alarmId} to {@code timestamp}. A null {@code title} or
+     * {@code body} keeps the current one. Returns false if the alarm is not armed.
+     */
+    static synchronized boolean reschedule(Context context, int alarmId, long timestamp, String title, String body) {
+        AlarmEntry current = ensureLoaded(context).get(alarmId);
+        if (current == null) {
+            return false;
+        }
+        schedule(context, alarmId, timestamp, title != null ? title : current.title,
+                body != null ? body : current.body, current.toleranceMs);
+        return true;
+    }
+
+    static synchronized void cancel(Context context, int alarmId) {
+        AlarmTrace.record(AlarmTrace.CANCEL, alarmId);
+        if (ensureLoaded(context).remove(alarmId) != null) {
+            AlarmStore.getInstance(context).remove(alarmId);
+            armNext(context);
+        }
+    }
+
+    /**
+     * Cancels a batch of alarms by ID in one pass and reports per ID whether it was armed.
+     */
+    static synchronized List<Boolean> cancelAll(Context context, List<Object> alarmIds) {
+        List<Boolean> results = new ArrayList<>();
+        if (alarmIds == null || alarmIds.isEmpty()) {
+            return results;
+        }
+
+        AlarmRegistry alarmRegistry = ensureLoaded(context);
+        int[] removedIds = new int[alarmIds.size()];
+        int removed = 0;
+        for (Object id : alarmIds) {
+            int alarmId = ((Number) id).intValue();
+            boolean armed = alarmRegistry.remove(alarmId) != null;
+            if (armed) {
+                AlarmTrace.record(AlarmTrace.CANCEL, alarmId);
+                removedIds[removed++] = alarmId;
+            }
+            results.add(armed);
+        }
+
+        if (removed > 0) {
+            AlarmStore.getInstance(context).removeAll(Arrays.copyOf(removedIds, removed));
+            armNext(context);
+        }
+        return results;
+    }
+
+    /**
+     * Cancels every alarm in the registry along with the chained AlarmManager alarm.
+     */
+    static synchronized void cancelAll(Context context) {
+        AlarmTrace.record(AlarmTrace.CANCEL_ALL, 0);
+        AlarmStore.getInstance(context).clear();
+
+        ensureLoaded(context).clear();
+        armNext(context);
+    }
+
+    /**
+     * Called once an alarm has been delivered so it is not re-armed after a reboot.
+     */
+    static synchronized void onDelivered(Context context, int alarmId) {
+        cancel(context, alarmId);
+    }
+
+    /**
+     * Removes every alarm that is due now, arms the next ones and returns the due alarms
+     * in trigger order. Called by {@link AlarmReceiver} when a chained alarm fires;
+     * {@code reminderChain} tells which one.
+     *
+     * Alarms due within the coalescing window are delivered in the same wakeup, so
+     * back-to-back lessons produce one notification group and one sound. An error while
+     * re-arming never drops the due alarms.
+     *
+     * The registry is read again from the store first, since a change from the other
+     * process, e.g. a cancel, may not have been broadcast here yet.
+     */
+    static synchronized List<AlarmEntry> pollDueAlarms(Context context, boolean reminderChain) {
+        registry = null;
+        long dueBy = System.currentTimeMillis() + DUE_TOLERANCE_MS + coalescingWindowMs(context);
+        List<AlarmEntry> due = ensureLoaded(context).pollDue(dueBy);
+
+        int[] dueIds = new int[due.size()];
+        for (int i = 0; i < dueIds.length; i++) {
+            dueIds[i] = due.get(i).id;
+        }
+        AlarmStore.getInstance(context).removeAll(dueIds);
+
+        // The chained alarm that just fired is no longer armed
+        if (reminderChain) {
+            armedReminderTrigger = NOT_ARMED;
+        } else {
+            armedTrigger = NOT_ARMED;
+        }
+        try {
+            armNext(context);
+        } catch (RuntimeException e) {
+            // E.g. exact alarms were revoked. The due alarms are already out of the store,
+            // so they must still be delivered; the failure is counted as an arm error and
+            // the chains are armed again on the next change, permission grant or boot.
+            android.util.Log.e("NativeAlarmScheduler", "Error re-arming after delivery", e);
+        }
+        return due;
+    }
+
+    /**
+     * Rebuilds the registry from {@link AlarmStore} and arms the earliest alarm. Used after
+     * a reboot or an app update, when AlarmManager has dropped our PendingIntent.
+     * Returns the number of registered alarms.
+     */
+    static synchronized int rearmFromStore(Context context) {
+        AlarmStore store = AlarmStore.getInstance(context);
+        int missed = store.removeBefore(System.currentTimeMillis() - MISSED_ALARM_GRACE_MS);
+        AlarmMetrics.recordMissed(context, missed);
+
+        registry = null;
+        armedTrigger = ARMED_UNKNOWN;
+        armedReminderTrigger = ARMED_UNKNOWN;
+        int registered = ensureLoaded(context).size();
+        armNext(context);
+        return registered;
+    }
+
+    /**
+     * Arms the chained alarms again even if their trigger times are unchanged, e.g. after
+     * the exact alarm permission changed which API can be used.
+     */
+    static synchronized void rearm(Context context) {
+        ensureLoaded(context);
+        armedTrigger = ARMED_UNKNOWN;
+        armedReminderTrigger = ARMED_UNKNOWN;
+        armNext(context);
+    }
+
+    /**
+     * Drops the registry and the armed trigger times, which the other process may have
+     * changed. The next call reloads the store and arms the chains again.
+     */
+    static synchronized void invalidate() {
+        registry = null;
+        armedTrigger = ARMED_UNKNOWN;
+        armedReminderTrigger = ARMED_UNKNOWN;
+    }
+
+    /**
+     * The coalescing window, kept inside the foreground lead window when that is enabled.
+     * The critical chain also wakes at the start of the lead window, and a wider window
+     * would deliver the alarm then instead of at its time.
+     */
+    private static long coalescingWindowMs(Context context) {
+        long windowMs = AlarmPreferences.getCoalescingWindowMs(context);
+        long leadMs = AlarmPreferences.getForegroundLeadMs(context);
+        if (leadMs > 0) {
+            // Alarms due at or before the cutoff are delivered, so stay strictly inside
+            windowMs = Math.min(windowMs, Math.max(0, leadMs - DUE_TOLERANCE_MS - 1));
+        }
+        return windowMs;
+    }
+
+    private static AlarmRegistry ensureLoaded(Context context) {
+        if (registry == null) {
+            registry = new AlarmRegistry();
+            for (AlarmEntry entry : AlarmStore.getInstance(context).getAll()) {
+                registry.put(entry);
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Re-evaluates the chained alarm and the foreground window, e.g. after the lead
+     * window setting changed.
+     */
+    static synchronized void refresh(Context context) {
+        ensureLoaded(context);
+        armNext(context);
+    }
+
+    /**
+     * Makes sure both chains are armed for the head of the registry, skipping the binder
+     * calls when they already are. Returns the API used for the critical chain, or null
+     * if it did not change.
+     */
+    private static String armNext(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        boolean deviceIdle = isDeviceIdle(context);
+        armReminder(context, alarmManager, deviceIdle);
+        return armCritical(context, alarmManager, deviceIdle);
+    }
+
+    /**
+     * Arms the critical chain for the earliest critical alarm.
+     *
+     * When {@link AlarmForegroundService} is enabled, the chained alarm first wakes us at
+     * the start of the lead window to start the service, and is then re-armed for the
+     * alarm itself. The service is stopped whenever no alarm is inside the window.
+     */
+    private static String armCritical(Context context, AlarmManager alarmManager, boolean deviceIdle) {
+        AlarmEntry next = registry.peekCritical();
+        if (next == null) {
+            if (armedTrigger != NOT_ARMED) {
+                alarmManager.cancel(buildPendingIntent(context, false));
+                armedTrigger = NOT_ARMED;
+                AlarmTrace.record(AlarmTrace.DISARM, 0);
+            }
+            AlarmForegroundService.stopWindow(context);
+            return null;
+        }
+
+        long armAt = next.triggerAt;
+        long leadMs = AlarmPreferences.getForegroundLeadMs(context);
+        if (leadMs > 0) {
+            long windowStart = next.triggerAt - leadMs;
+            if (windowStart > System.currentTimeMillis()) {
+                armAt = windowStart;
+                AlarmForegroundService.stopWindow(context);
+            } else {
+                AlarmForegroundService.startWindow(context, next);
+            }
+        }
+
+        if (armAt == armedTrigger) {
+            return null;
+        }
+
+        AlarmStrategy strategy = AlarmStrategy.chooseCritical(Build.VERSION.SDK_INT,
+                canScheduleExactAlarms(alarmManager), deviceIdle);
+        try {
+            arm(alarmManager, strategy, armAt, 0, buildPendingIntent(context, false));
+        } catch (RuntimeException e) {
+            AlarmMetrics.recordArmError(context);
+            throw e;
+        }
+        armedTrigger = armAt;
+        AlarmTrace.record(AlarmTrace.ARM, next.id, armAt);
+        AlarmMetrics.onArmed(context, AlarmMetrics.apiOf(strategy.apiName), false);
+        return strategy.apiName;
+    }
+
+    /**
+     * Arms the reminder chain when an early reminder is due before the next critical
+     * alarm. Later reminders wait; they are delivered with, or armed after, that alarm.
+     */
+    private static void armReminder(Context context, AlarmManager alarmManager, boolean deviceIdle) {
+        AlarmEntry next = registry.peek();
+        if (next == null || next.isCritical()) {
+            if (armedReminderTrigger != NOT_ARMED) {
+                alarmManager.cancel(buildPendingIntent(context, true));
+                armedReminderTrigger = NOT_ARMED;
+                AlarmTrace.record(AlarmTrace.DISARM_REMINDER, 0);
+            }
+            return;
+        }
+
+        if (next.triggerAt == armedReminderTrigger && next.toleranceMs == armedReminderWindow) {
+            return;
+        }
+
+        AlarmStrategy strategy = AlarmStrategy.chooseReminder(Build.VERSION.SDK_INT, deviceIdle);
+        try {
+            arm(alarmManager, strategy, next.triggerAt, next.toleranceMs, buildPendingIntent(context, true));
+        } catch (RuntimeException e) {
+            AlarmMetrics.recordArmError(context);
+            throw e;
+        }
+        armedReminderTrigger = next.triggerAt;
+        armedReminderWindow = next.toleranceMs;
+        AlarmTrace.record(AlarmTrace.ARM_REMINDER, next.id, next.triggerAt);
+        AlarmMetrics.onArmed(context, AlarmMetrics.apiOf(strategy.apiName), true);
+    }
+
+    private static boolean canScheduleExactAlarms(AlarmManager alarmManager) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            // Android 12+ requires exact alarm permission
+            return alarmManager.canScheduleExactAlarms();
+        }
+        return true;
+    }
+
+    private static boolean isDeviceIdle(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return false;
+        }
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        return powerManager != null && powerManager.isDeviceIdleMode();
+    }
+
+    /**
+     * Registers a chained alarm with AlarmManager using {@code strategy}.
+     * {@code windowMs} is only used by {@link AlarmStrategy#WINDOW}.
+     */
+    private static void arm(AlarmManager alarmManager, AlarmStrategy strategy,
+                            long timestamp, long windowMs, PendingIntent pendingIntent) {
+        switch (strategy) {
+            case EXACT_ALLOW_WHILE_IDLE:
+                alarmManager.setExactAndAllowWhileIdle(
+                        AlarmManager.RTC_WAKEUP,
+                        timestamp,
+                        pendingIntent
+                );
+                break;
+            case ALARM_CLOCK:
+                // Exact alarms not allowed on Android 12+, or the device is in Doze
+                alarmManager.setAlarmClock(
+                        new AlarmManager.AlarmClockInfo(timestamp, pendingIntent),
+                        pendingIntent
+                );
+                break;
+            case WINDOW:
+                // Android 12+ stretches windows shorter than 10 minutes to 10 minutes
+                alarmManager.setWindow(
+                        AlarmManager.RTC_WAKEUP,
+                        timestamp,
+                        windowMs,
+                        pendingIntent
+                );
+                break;
+            case INEXACT_ALLOW_WHILE_IDLE:
+                alarmManager.setAndAllowWhileIdle(
+                        AlarmManager.RTC_WAKEUP,
+                        timestamp,
+                        pendingIntent
+                );
+                break;
+            default:
+                alarmManager.setExact(
+                        AlarmManager.RTC_WAKEUP,
+                        timestamp,
+                        pendingIntent
+                );
+                break;
+        }
+    }
+
+    private static PendingIntent buildPendingIntent(Context context, boolean reminderChain) {
+        Intent intent = new Intent(ACTION_ALARM_TRIGGER);
+        intent.setClass(context, AlarmReceiver.class);
+        intent.putExtra(EXTRA_REMINDER_CHAIN, reminderChain);
+
+        return PendingIntent.getBroadcast(
+                context,
+                reminderChain ? AlarmIds.REMINDER_CHAIN_REQUEST_CODE : AlarmIds.CHAIN_REQUEST_CODE,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+}
@@ -0,0 +1,200 @@
+package com.zuwad;
+
+import android.content.Context;
+import com.zuwad.alarm.AlarmEntry;
+import com.zuwad.alarm.LessonRecurrence;
+import com.zuwad.alarm.LessonRule;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Arms lesson alarms from weekly {@link LessonRule}s instead of one call per lesson.
+ *
+ * Dart hands over the weekly timetable once. The rules are kept in {@link AlarmStore}
+ * and only the next few lessons of each rule are armed through
+ * {@link NativeAlarmScheduler}. The rules are expanded again after each delivery, after
+ * a reboot, and when the clock or time zone changes, so the term keeps rolling forward
+ * without Dart and the number of armed alarms stays constant.
+ *
+ * An explicit alarm list from Dart (scheduleAlarm, scheduleAlarms, syncAlarms or
+ * cancelAllAlarms) replaces the rules; otherwise the next expansion would drop those
+ * alarms as ones no rule produces. While rules are set, {@link ScheduleRefreshJob} fetches the
+ * timetable now and then and sets them again.
+ */
+final class RecurrenceScheduler {
+    private static final String TAG = "RecurrenceScheduler";
+
+    // Loaded from the store on first use and after the other process changed it; empty
+    // when no rules are set
+    private static List<LessonRule> rules;
+
+    private RecurrenceScheduler() {
+    }
+
+    /**
+     * Stores {@code ruleMaps} (see {@link LessonRule#fromMap}) in place of the current
+     * rules and arms their next {@code occurrences} lessons. Returns the number of armed
+     * alarms.
+     */
+    static synchronized int setRules(Context context, List<Object> ruleMaps, int occurrences) {
+        List<LessonRule> parsed = new ArrayList<>();
+        if (ruleMaps != null) {
+            for (Object ruleMap : ruleMaps) {
+                parsed.add(LessonRule.fromMap((Map<?, ?>) ruleMap));
+            }
+        }
+
+        AlarmPreferences.setRuleOccurrences(context, occurrences);
+        store(context, parsed);
+        if (parsed.isEmpty()) {
+            ScheduleRefreshJob.cancel(context);
+        } else {
+            ScheduleRefreshJob.schedule(context);
+        }
+        return refresh(context);
+    }
+
+    /**
+     * Moves the lesson that regularly starts at {@code time} on {@code date} to
+     * {@code movedTo} and re-arms. Other lessons on the same day keep their time.
+     * Returns false if no rule has that lesson.
+     */
+    static synchronized boolean postpone(Context context, LocalDate date, LocalTime time,
+                                         LocalDateTime movedTo) {
+        List<LessonRule> updated = new ArrayList<>();
+        boolean matched = false;
+        for (LessonRule rule : ensureLoaded(context)) {
+            if (rule.day == date.getDayOfWeek() && rule.time.equals(time)) {
+                updated.add(rule.withPostponement(date, movedTo));
+                matched = true;
+            } else {
+                updated.add(rule);
+            }
+        }
+        if (!matched) {
+            return false;
+        }
+
+        store(context, updated);
+        refresh(context);
+        return true;
+    }
+
+    /**
+     * Drops the rules without touching the armed alarms; the caller replaces those.
+     */
+    static synchronized void clear(Context context) {
+        if (ensureLoaded(context).isEmpty()) {
+            return;
+        }
+        AlarmStore.getInstance(context).replaceLessonRules(new ArrayList<>());
+        rules = new ArrayList<>();
+        ScheduleRefreshJob.cancel(context);
+    }
+
+    /**
+     * Arms the next lessons of every rule as of now and drops alarms no rule produces
+     * any more. Past exceptions and postponements are dropped from the stored rules on
+     * the way. Does nothing when no rules are set. Returns the number of armed alarms.
+     */
+    static synchronized int refresh(Context context) {
+        return refresh(context, 0);
+    }
+
+    /**
+     * Like {@link #refresh(Context)}, called after a delivery. Lessons whose alarms are at
+     * or before {@code deliveredThrough}, the latest trigger time just delivered, are not
+     * armed again even if the coalescing window delivered them ahead of their time.
+     */
+    static synchronized int refresh(Context context, long deliveredThrough) {
+        List<LessonRule> lessonRules = ensureLoaded(context);
+        if (lessonRules.isEmpty()) {
+            return 0;
+        }
+
+        long now = System.currentTimeMillis();
+        List<LessonRule> pruned = new ArrayList<>(lessonRules.size());
+        boolean changed = false;
+        for (LessonRule rule : lessonRules) {
+            LessonRule current = rule.pruned(Instant.ofEpochMilli(now));
+            pruned.add(current);
+            changed |= current != rule;
+        }
+        if (changed) {
+            store(context, pruned);
+            lessonRules = pruned;
+        }
+
+        List<AlarmEntry> alarms = LessonRecurrence.expand(lessonRules, Math.max(now, deliveredThrough),
+                AlarmPreferences.getRuleOccurrences(context));
+        NativeAlarmScheduler.syncEntries(context, alarms);
+        return alarms.size();
+    }
+
+    private static void store(Context context, List<LessonRule> lessonRules) {
+        List<String> encoded = new ArrayList<>(lessonRules.size());
+        for (LessonRule rule : lessonRules) {
+            encoded.add(new JSONObject(rule.toMap()).toString());
+        }
+        AlarmStore.getInstance(context).replaceLessonRules(encoded);
+        rules = lessonRules;
+    }
+
+    /**
+     * Drops the cached rules, which the other process may have changed.
+     */
+    static synchronized void invalidate() {
+        rules = null;
+    }
+
+    private static List<LessonRule> ensureLoaded(Context context) {
+        if (rules != null) {
+            return rules;
+        }
+
+        rules = new ArrayList<>();
+        for (String encoded : AlarmStore.getInstance(context).getLessonRules()) {
+            try {
+                rules.add(LessonRule.fromMap(toMap(new JSONObject(encoded))));
+            } catch (JSONException | RuntimeException e) {
+                android.util.Log.e(TAG, "Skipping unreadable lesson rule", e);
+            }
+        }
+        return rules;
+    }
+
+    private static Map<String, Object> toMap(JSONObject object) throws JSONException {
+        Map<String, Object> map = new HashMap<>();
+        Iterator<String> keys = object.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            map.put(key, toValue(object.get(key)));
+        }
+        return map;
+    }
+
+    private static Object toValue(Object value) throws JSONException {
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            List<Object> list = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                list.add(toValue(array.get(i)));
+            }
+            return list;
+        }
+        if (value instanceof JSONObject) {
+            return toMap((JSONObject) value);
+        }
+        return value == JSONObject.NULL ? null : value;
+    }
+}
@@ -0,0 +1,137 @@
+package com.zuwad;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import io.flutter.FlutterInjector;
+import io.flutter.embedding.engine.FlutterEngine;
+import io.flutter.embedding.engine.FlutterEngineGroup;
+import io.flutter.embedding.engine.dart.DartExecutor;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Periodically fetches the timetable while the app is closed, so postponements and new
+ * lessons reach the lesson rules without the user opening the app.
+ *
+ * The job spawns a headless engine from {@link AlarmEngineGroup} running the Dart
+ * {@code scheduleRefreshMain} entrypoint, which fetches the schedule, hands the new rules
+ * to the {@link NativeAlarmMethodHandler#CHANNEL} channel and reports back on
+ * {@link #CHANNEL}. The engine is destroyed as soon as Dart reports, or after
+ * {@link #TIMEOUT_MS}.
+ *
+ * Scheduled while lesson rules are set; see {@link RecurrenceScheduler}.
+ */
+public class ScheduleRefreshJob extends JobService {
+    static final String CHANNEL = "com.zuwad/schedule_refresh";
+
+    // Also used to force a run: adb shell cmd jobscheduler run -f com.zuwad 4201
+    private static final int JOB_ID = 4201;
+    private static final long INTERVAL_MS = 6 * 60 * 60 * 1000L;
+    private static final long TIMEOUT_MS = 2 * 60 * 1000L;
+    private static final String ENTRYPOINT = "scheduleRefreshMain";
+
+    private static final String TAG = "ScheduleRefreshJob";
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Only touched on the main thread
+    private FlutterEngine engine;
+    private JobParameters runningJob;
+    private final Runnable timeoutTask = () -> finish(true);
+
+    /**
+     * Schedules the periodic refresh unless it is already scheduled.
+     */
+    static void schedule(Context context) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler == null) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && jobScheduler.getPendingJob(JOB_ID) != null) {
+            return;
+        }
+
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, ScheduleRefreshJob.class))
+                .setPeriodic(INTERVAL_MS)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setPersisted(true)
+                .build();
+        if (jobScheduler.schedule(job) != JobScheduler.RESULT_SUCCESS) {
+            android.util.Log.e(TAG, "Error scheduling schedule refresh");
+        }
+    }
+
+    static void cancel(Context context) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler != null) {
+            jobScheduler.cancel(JOB_ID);
+        }
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        if (engine != null) {
+            return false;
+        }
+
+        try {
+            FlutterEngineGroup group = AlarmEngineGroup.get(this);
+            String bundlePath = FlutterInjector.instance().flutterLoader().findAppBundlePath();
+            engine = group.createAndRunEngine(new FlutterEngineGroup.Options(this)
+                    .setDartEntrypoint(new DartExecutor.DartEntrypoint(bundlePath, ENTRYPOINT)));
+        } catch (Exception e) {
+            android.util.Log.e(TAG, "Error starting refresh engine", e);
+            engine = null;
+            return false;
+        }
+        runningJob = params;
+
+        BinaryMessenger messenger = engine.getDartExecutor().getBinaryMessenger();
+        new MethodChannel(messenger, NativeAlarmMethodHandler.CHANNEL, messenger.makeBackgroundTaskQueue())
+                .setMethodCallHandler(new NativeAlarmMethodHandler(this, null));
+        new MethodChannel(messenger, CHANNEL).setMethodCallHandler((call, result) -> {
+            if (call.method.equals("finished")) {
+                Boolean success = call.argument("success");
+                result.success(null);
+                // Let the reply reach Dart before the engine goes away
+                mainHandler.post(() -> finish(success == null || !success));
+            } else {
+                result.notImplemented();
+            }
+        });
+
+        mainHandler.postDelayed(timeoutTask, TIMEOUT_MS);
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Constraints lost or the system needs the resources; try again later
+        runningJob = null;
+        destroyEngine();
+        return true;
+    }
+
+    private void finish(boolean retry) {
+        destroyEngine();
+        if (runningJob != null) {
+            jobFinished(runningJob, retry);
+            runningJob = null;
+        }
+    }
+
+    private void destroyEngine() {
+        mainHandler.removeCallbacks(timeoutTask);
+        if (engine != null) {
+            engine.destroy();
+            engine = null;
+        }
+    }
+}
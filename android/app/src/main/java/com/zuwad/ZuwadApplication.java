@@ -0,0 +1,17 @@
+package com.zuwad;
+
+import android.app.Application;
+
+/**
+ * Application for both the main process and the {@code :alarm} process.
+ *
+ * Kept free of Flutter and Firebase setup, which the main process gets from their
+ * content providers, so the alarm process starts with nothing but the alarm code.
+ */
+public class ZuwadApplication extends Application {
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        AlarmProcess.register(this);
+    }
+}
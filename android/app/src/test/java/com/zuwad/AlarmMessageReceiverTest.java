@@ -0,0 +1,154 @@
+package com.zuwad;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import androidx.test.core.app.ApplicationProvider;
+import com.google.firebase.messaging.RemoteMessage;
+import com.zuwad.alarm.AlarmEntry;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Alarm update pushes applied through {@link AlarmMessageReceiver#handle}, with synthetic
+ * RemoteMessages in place of FCM.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class AlarmMessageReceiverTest {
+    private static final ZoneId CAIRO = ZoneId.of("Africa/Cairo");
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+    }
+
+    @After
+    public void tearDown() {
+        RecurrenceScheduler.clear(context);
+        NativeAlarmScheduler.cancelAll(context);
+    }
+
+    private static RemoteMessage message(String... keysAndValues) {
+        RemoteMessage.Builder builder = new RemoteMessage.Builder("zuwad@fcm.googleapis.com");
+        for (int i = 0; i + 1 < keysAndValues.length; i += 2) {
+            builder.addData(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return builder.build();
+    }
+
+    private Set<Long> storedTriggers() {
+        Set<Long> triggers = new HashSet<>();
+        for (AlarmEntry entry : AlarmStore.getInstance(context).getAll()) {
+            triggers.add(entry.triggerAt);
+        }
+        return triggers;
+    }
+
+    @Test
+    public void leavesOtherMessagesToThePlugin() {
+        assertFalse(AlarmMessageReceiver.handle(context, message("type", "chat_message", "text", "hi")));
+        assertTrue(storedTriggers().isEmpty());
+    }
+
+    @Test
+    public void ignoresMalformedUpdates() {
+        assertFalse(AlarmMessageReceiver.handle(context,
+                message("type", "alarm_update", "op", "schedule", "id", "x", "at", "1")));
+        assertFalse(AlarmMessageReceiver.handle(context, message("type", "alarm_update", "op", "snooze")));
+        assertTrue(storedTriggers().isEmpty());
+    }
+
+    @Test
+    public void schedulesReschedulesAndCancels() {
+        long at = System.currentTimeMillis() + HOUR_MS;
+        assertTrue(AlarmMessageReceiver.handle(context, message("type", "alarm_update", "op", "schedule",
+                "id", "42", "at", String.valueOf(at), "title", "منبه الحصة", "body", "حان وقت الحصة")));
+        assertEquals(new HashSet<>(Arrays.asList(at)), storedTriggers());
+
+        long movedAt = at + HOUR_MS;
+        assertTrue(AlarmMessageReceiver.handle(context, message("type", "alarm_update", "op", "reschedule",
+                "id", "42", "at", String.valueOf(movedAt))));
+        List<AlarmEntry> stored = AlarmStore.getInstance(context).getAll();
+        assertEquals(1, stored.size());
+        assertEquals(movedAt, stored.get(0).triggerAt);
+        assertEquals("منبه الحصة", stored.get(0).title);
+
+        assertTrue(AlarmMessageReceiver.handle(context,
+                message("type", "alarm_update", "op", "cancel", "id", "42")));
+        assertTrue(storedTriggers().isEmpty());
+    }
+
+    @Test
+    public void rescheduleOfUnknownAlarmIsNotApplied() {
+        assertFalse(AlarmMessageReceiver.handle(context, message("type", "alarm_update", "op", "reschedule",
+                "id", "7", "at", String.valueOf(System.currentTimeMillis() + HOUR_MS))));
+    }
+
+    @Test
+    public void postponeMovesOnlyTheLessonAtThatTime() {
+        // Two lessons on Mondays, alarms 15 minutes before each
+        List<Object> rules = new ArrayList<>();
+        rules.add(rule(16));
+        rules.add(rule(18));
+        RecurrenceScheduler.setRules(context, rules, 1);
+
+        LocalDate monday = LocalDate.now(CAIRO).plusDays(1).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+        long first = ZonedDateTime.of(monday.atTime(15, 45), CAIRO).toInstant().toEpochMilli();
+        long second = ZonedDateTime.of(monday.atTime(17, 45), CAIRO).toInstant().toEpochMilli();
+        assertTrue(storedTriggers().containsAll(Arrays.asList(first, second)));
+
+        LocalDate tuesday = monday.plusDays(1);
+        assertTrue(AlarmMessageReceiver.handle(context, message("type", "alarm_update", "op", "postpone",
+                "from", monday.toString(), "time", "18:00", "to", tuesday + "T19:30")));
+
+        long moved = ZonedDateTime.of(tuesday.atTime(19, 15), CAIRO).toInstant().toEpochMilli();
+        Set<Long> triggers = storedTriggers();
+        assertTrue(triggers.contains(first));
+        assertFalse(triggers.contains(second));
+        assertTrue(triggers.contains(moved));
+    }
+
+    @Test
+    public void postponeOfUnknownLessonIsNotApplied() {
+        List<Object> rules = new ArrayList<>();
+        rules.add(rule(16));
+        RecurrenceScheduler.setRules(context, rules, 1);
+
+        LocalDate monday = LocalDate.now(CAIRO).plusDays(1).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+        assertFalse(AlarmMessageReceiver.handle(context, message("type", "alarm_update", "op", "postpone",
+                "from", monday.toString(), "time", "18:00", "to", monday + "T19:30")));
+    }
+
+    private static Map<String, Object> rule(int hour) {
+        Map<String, Object> rule = new HashMap<>();
+        rule.put("day", DayOfWeek.MONDAY.getValue());
+        rule.put("hour", hour);
+        rule.put("minute", 0);
+        rule.put("zone", CAIRO.getId());
+        rule.put("title", "منبه الحصة");
+        rule.put("leads", Arrays.asList(15, "الحصة بعد ربع ساعة"));
+        return rule;
+    }
+}
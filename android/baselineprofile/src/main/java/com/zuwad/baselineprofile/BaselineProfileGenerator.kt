@@ -0,0 +1,38 @@
+package com.zuwad.baselineprofile
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Records the classes and methods used by the journeys below into the app's baseline
+ * profile. The launch journeys also go into the startup profile, which R8 uses to put
+ * the startup classes in the primary dex file.
+ *
+ * Run with ./gradlew :app:generateBaselineProfile; the profiles are written to
+ * app/src/release/generated/baselineProfiles and checked in.
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class BaselineProfileGenerator {
+    @get:Rule
+    val rule = BaselineProfileRule()
+
+    @Test
+    fun appStartup() = rule.collect(PACKAGE_NAME, includeInStartupProfile = true) {
+        launchApp()
+    }
+
+    @Test
+    fun openFromAlarm() = rule.collect(PACKAGE_NAME, includeInStartupProfile = true) {
+        launchFromAlarm()
+    }
+
+    @Test
+    fun joinMeeting() = rule.collect(PACKAGE_NAME) {
+        enterMeeting()
+    }
+}
@@ -0,0 +1,62 @@
+package com.zuwad.baselineprofile
+
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.UiObject2
+import androidx.test.uiautomator.Until
+
+// User journeys shared by the profile generator and the startup benchmarks
+
+const val PACKAGE_NAME = "com.zuwad"
+
+// Labels exposed by Flutter semantics; see student_dashboard_page.dart and meeting_page.dart
+private const val JOIN_LESSON_LABEL = "إنضم للدرس"
+private const val CONFIRM_JOIN_LABEL = "انضمام للدرس"
+
+private const val LAUNCH_TIMEOUT_MS = 10_000L
+private const val MEETING_TIMEOUT_MS = 20_000L
+
+/**
+ * Cold launch from the launcher, up to the first Flutter frame.
+ */
+fun MacrobenchmarkScope.launchApp() {
+    pressHome()
+    startActivityAndWait()
+    device.wait(Until.hasObject(By.pkg(PACKAGE_NAME).depth(0)), LAUNCH_TIMEOUT_MS)
+}
+
+/**
+ * Launch through a lesson alarm notification tap, with the extras AlarmReceiver puts on
+ * its content intent.
+ */
+fun MacrobenchmarkScope.launchFromAlarm() {
+    pressHome()
+    startActivityAndWait { intent ->
+        intent.putExtra("alarm_id", 1)
+        intent.putExtra("title", "منبه الحصة")
+        intent.putExtra("body", "الحصة ستبدأ بعد 15 دقيقة")
+    }
+    device.wait(Until.hasObject(By.pkg(PACKAGE_NAME).depth(0)), LAUNCH_TIMEOUT_MS)
+}
+
+/**
+ * Joins the next lesson from the dashboard and leaves again. Needs a signed-in student
+ * whose lesson can be joined; otherwise only the launch is recorded.
+ */
+fun MacrobenchmarkScope.enterMeeting() {
+    launchApp()
+    val join = findLabel(JOIN_LESSON_LABEL) ?: return
+    join.click()
+    findLabel(CONFIRM_JOIN_LABEL)?.click() ?: return
+
+    // Camera, microphone and the first remote frames
+    device.wait(Until.gone(By.desc(CONFIRM_JOIN_LABEL)), MEETING_TIMEOUT_MS)
+    device.waitForIdle()
+    device.pressBack()
+}
+
+private fun MacrobenchmarkScope.findLabel(label: String): UiObject2? {
+    // Flutter reports labels as content descriptions, or as text on newer engines
+    return device.wait(Until.findObject(By.desc(label)), LAUNCH_TIMEOUT_MS)
+        ?: device.findObject(By.text(label))
+}
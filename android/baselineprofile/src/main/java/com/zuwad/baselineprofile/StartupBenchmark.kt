@@ -0,0 +1,50 @@
+package com.zuwad.baselineprofile
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.StartupTimingMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Cold start with and without the baseline profile, from the launcher and from an alarm
+ * notification. Compare timeToInitialDisplayMs between the None and BaselineProfile runs.
+ *
+ * Run with ./gradlew :baselineprofile:connectedBenchmarkReleaseAndroidTest
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class StartupBenchmark {
+    @get:Rule
+    val rule = MacrobenchmarkRule()
+
+    @Test
+    fun startupWithoutProfile() = startup(CompilationMode.None()) { launchApp() }
+
+    @Test
+    fun startupWithProfile() =
+        startup(CompilationMode.Partial(BaselineProfileMode.Require)) { launchApp() }
+
+    @Test
+    fun alarmTapWithoutProfile() = startup(CompilationMode.None()) { launchFromAlarm() }
+
+    @Test
+    fun alarmTapWithProfile() =
+        startup(CompilationMode.Partial(BaselineProfileMode.Require)) { launchFromAlarm() }
+
+    private fun startup(mode: CompilationMode, journey: MacrobenchmarkScope.() -> Unit) =
+        rule.measureRepeated(
+            packageName = PACKAGE_NAME,
+            metrics = listOf(StartupTimingMetric()),
+            compilationMode = mode,
+            startupMode = StartupMode.COLD,
+            iterations = 10,
+            measureBlock = journey,
+        )
+}
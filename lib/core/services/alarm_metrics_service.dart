@@ -0,0 +1,153 @@
+import 'dart:io';
+import 'package:flutter/foundation.dart';
+import 'package:flutter/services.dart';
+
+/// One event from the native alarm trace
+class AlarmTraceEvent {
+  final int sequence;
+  final String event;
+  final int alarmId;
+  final DateTime time;
+
+  /// Event-specific value, e.g. the trigger time or a latency in ms
+  final int value;
+
+  const AlarmTraceEvent({
+    required this.sequence,
+    required this.event,
+    required this.alarmId,
+    required this.time,
+    required this.value,
+  });
+
+  @override
+  String toString() => '#$sequence $time $event id=$alarmId value=$value';
+}
+
+/// Access to the native alarm delivery metrics and trace (Android only).
+///
+/// The snapshot contains, per AlarmManager API, a histogram of how late alarms
+/// fired (`drift_ms`), a histogram of receive-to-notification latency
+/// (`latency_ms`), and counters for coalesced, missed and failed alarms.
+/// Histogram buckets are described by `bucket_bounds_ms`.
+///
+/// The trace holds the last native alarm events (schedule, arm, receive,
+/// deliver, ...) for support cases.
+class AlarmMetricsService {
+  static const MethodChannel _channel = MethodChannel('com.zuwad/alarm_metrics');
+
+  /// Get the current metrics snapshot, or null if unavailable
+  static Future<Map<String, dynamic>?> getSnapshot() async {
+    if (!Platform.isAndroid) {
+      return null;
+    }
+
+    try {
+      final result = await _channel.invokeMethod<Map<dynamic, dynamic>>('getSnapshot');
+      return result?.cast<String, dynamic>();
+    } catch (e) {
+      if (kDebugMode) {
+        print('AlarmMetricsService: Error getting snapshot: $e');
+      }
+      return null;
+    }
+  }
+
+  /// Write the snapshot as JSON to [path], or to the app's external files
+  /// directory if no path is given. Returns the path written, or null on failure.
+  static Future<String?> exportSnapshot({String? path}) async {
+    if (!Platform.isAndroid) {
+      return null;
+    }
+
+    try {
+      final result = await _channel.invokeMethod<String>('exportSnapshot', {'path': path});
+      if (kDebugMode) {
+        print('AlarmMetricsService: Exported metrics to $result');
+      }
+      return result;
+    } catch (e) {
+      if (kDebugMode) {
+        print('AlarmMetricsService: Error exporting snapshot: $e');
+      }
+      return null;
+    }
+  }
+
+  /// Clear all recorded metrics
+  static Future<void> reset() async {
+    if (!Platform.isAndroid) {
+      return;
+    }
+
+    try {
+      await _channel.invokeMethod('reset');
+    } catch (e) {
+      if (kDebugMode) {
+        print('AlarmMetricsService: Error resetting metrics: $e');
+      }
+    }
+  }
+
+  /// Get the buffered native alarm events, oldest first
+  static Future<List<AlarmTraceEvent>> getTrace() async {
+    if (!Platform.isAndroid) {
+      return [];
+    }
+
+    try {
+      final result = await _channel.invokeMethod<List<dynamic>>('getTrace');
+      final events = <AlarmTraceEvent>[];
+      if (result == null) {
+        return events;
+      }
+      for (var i = 0; i + 5 <= result.length; i += 5) {
+        events.add(AlarmTraceEvent(
+          sequence: result[i] as int,
+          event: result[i + 1] as String,
+          alarmId: result[i + 2] as int,
+          time: DateTime.fromMillisecondsSinceEpoch(result[i + 3] as int),
+          value: result[i + 4] as int,
+        ));
+      }
+      return events;
+    } catch (e) {
+      if (kDebugMode) {
+        print('AlarmMetricsService: Error getting trace: $e');
+      }
+      return [];
+    }
+  }
+
+  /// Write the trace as text to [path], or to the app's external files
+  /// directory if no path is given. Returns the path written, or null on failure.
+  static Future<String?> exportTrace({String? path}) async {
+    if (!Platform.isAndroid) {
+      return null;
+    }
+
+    try {
+      return await _channel.invokeMethod<String>('exportTrace', {'path': path});
+    } catch (e) {
+      if (kDebugMode) {
+        print('AlarmMetricsService: Error exporting trace: $e');
+      }
+      return null;
+    }
+  }
+
+  /// Turn native alarm tracing on or off (on by default)
+  static Future<void> setTraceEnabled(bool enabled) async {
+    if (!Platform.isAndroid) {
+      return;
+    }
+
+    try {
+      await _channel.invokeMethod('setTraceEnabled', {'enabled': enabled});
+    } catch (e) {
+      if (kDebugMode) {
+        print('AlarmMetricsService: Error setting trace state: $e');
+      }
+    }
+  }
+}
@@ -5,6 +5,27 @@ import 'package:alarm/alarm.dart';
 import 'package:shared_preferences/shared_preferences.dart';
 import 'package:permission_handler/permission_handler.dart';
 import 'package:flutter/foundation.dart';
+import 'native_alarm_service.dart';
+
+/// A weekly lesson slot in Egypt time, as the server stores it
+class WeeklyLesson {
+  /// [DateTime.monday] to [DateTime.sunday]
+  final int weekday;
+  final int hour;
+  final int minute;
+
+  /// A postponed lesson: the regular lesson date and where it moved to
+  final DateTime? postponedFrom;
+  final DateTime? postponedTo;
+
+  const WeeklyLesson({
+    required this.weekday,
+    required this.hour,
+    required this.minute,
+    this.postponedFrom,
+    this.postponedTo,
+  });
+}
 
 /// Service for managing lesson alarms with custom sound
 class AlarmService {
@@ -14,6 +35,9 @@ class AlarmService {
   static const String _keyRepeatForAll = 'alarm_repeat_for_all';
   static const String _keyMultipleAlarms = 'alarm_multiple_times';
 
+  // Lesson times from the server are in Egypt time
+  static const String _lessonTimeZone = 'Africa/Cairo';
+
   /// Initialize the alarm service
   static Future<void> initialize() async {
     try {
@@ -210,22 +234,8 @@ class AlarmService {
     required String teacherName,
   }) async {
     try {
-      // Check for exact alarm permission on Android 12+
-      if (defaultTargetPlatform == TargetPlatform.android) {
-        if (await Permission.scheduleExactAlarm.isDenied) {
-          if (kDebugMode) {
-            print(
-                'AlarmService: Schedule Exact Alarm permission denied, requesting...');
-          }
-          final status = await Permission.scheduleExactAlarm.request();
-          if (!status.isGranted) {
-            if (kDebugMode) {
-              print(
-                  'AlarmService: Schedule Exact Alarm permission NOT granted');
-            }
-            return false;
-          }
-        }
+      if (!await _ensureExactAlarmPermission()) {
+        return false;
       }
       // Calculate alarm time
       final alarmTime = lessonDateTime.subtract(
@@ -263,8 +273,12 @@ class AlarmService {
       }
 
       // Create notification body
-      final notificationBody =
-          'الحصة مع $teacherName - $lessonName\nستبدأ بعد ${hoursBeforeLesson > 0 ? "$hoursBeforeLesson ساعة و" : ""}$minutesBeforeLesson دقيقة';
+      final notificationBody = _buildNotificationBody(
+        lessonName: lessonName,
+        teacherName: teacherName,
+        hoursBeforeLesson: hoursBeforeLesson,
+        minutesBeforeLesson: minutesBeforeLesson,
+      );
 
       // iOS does not support .ogg (AVAudioPlayer limitation).
       // alarm.m4a is the iOS-compatible version converted from alarm.ogg.
@@ -318,14 +332,297 @@ class AlarmService {
     }
   }
 
-  /// Cancel all alarms
-  static Future<void> cancelAllAlarms() async {
+  /// Schedule alarms for several lessons at once.
+  /// On Android all alarms are handed to the native alarm layer in a single
+  /// platform-channel call; other platforms fall back to [scheduleAlarm].
+  /// Returns the number of alarms that were scheduled.
+  static Future<int> scheduleAlarms({
+    required List<DateTime> lessonDateTimes,
+    required int hoursBeforeLesson,
+    required int minutesBeforeLesson,
+    required String lessonName,
+    required String teacherName,
+  }) async {
+    if (!Platform.isAndroid) {
+      int scheduledCount = 0;
+      for (final lessonDateTime in lessonDateTimes) {
+        final success = await scheduleAlarm(
+          lessonDateTime: lessonDateTime,
+          hoursBeforeLesson: hoursBeforeLesson,
+          minutesBeforeLesson: minutesBeforeLesson,
+          lessonName: lessonName,
+          teacherName: teacherName,
+        );
+        if (success) {
+          scheduledCount++;
+        }
+      }
+      return scheduledCount;
+    }
+
+    try {
+      if (!await _ensureExactAlarmPermission()) {
+        return 0;
+      }
+
+      // A single alarm per lesson is always the critical one
+      final alarms = _buildNativeAlarms(
+        lessonDateTimes: lessonDateTimes,
+        hoursBeforeLesson: hoursBeforeLesson,
+        minutesBeforeLesson: minutesBeforeLesson,
+        tolerance: Duration.zero,
+        lessonName: lessonName,
+        teacherName: teacherName,
+      );
+
+      if (alarms.isEmpty) {
+        if (kDebugMode) {
+          print('AlarmService: No future alarm times to schedule');
+        }
+        return 0;
+      }
+
+      final results = await NativeAlarmService.scheduleAlarms(alarms);
+      final scheduledCount = results.where((r) => r).length;
+
+      if (kDebugMode) {
+        print(
+          'AlarmService: Scheduled $scheduledCount/${alarms.length} alarms in one batch',
+        );
+      }
+
+      return scheduledCount;
+    } catch (e) {
+      if (kDebugMode) {
+        print('AlarmService: Error scheduling alarms: $e');
+      }
+      return 0;
+    }
+  }
+
+  /// Whether [syncAlarms] can diff against the natively armed alarms
+  static bool get supportsAlarmSync => Platform.isAndroid;
+
+  /// Make the scheduled alarms match [lessonDateTimes] for every entry of
+  /// [alarmTimes] (each with 'hours' and 'minutes' before the lesson).
+  /// The native layer only applies what changed since the last sync, so after a
+  /// timetable change only the affected lessons are touched.
+  /// Returns the number of alarms that are scheduled after the sync.
+  static Future<int> syncAlarms({
+    required List<DateTime> lessonDateTimes,
+    required List<Map<String, int>> alarmTimes,
+    required String lessonName,
+    required String teacherName,
+  }) async {
+    if (!supportsAlarmSync) {
+      return 0;
+    }
+
+    try {
+      if (!await _ensureExactAlarmPermission()) {
+        return 0;
+      }
+
+      final criticalLead = _criticalLead(alarmTimes);
+      final alarms = <NativeAlarm>[];
+      for (final alarmTime in alarmTimes) {
+        final hours = alarmTime['hours'] ?? 0;
+        final minutes = alarmTime['minutes'] ?? 15;
+        alarms.addAll(_buildNativeAlarms(
+          lessonDateTimes: lessonDateTimes,
+          hoursBeforeLesson: hours,
+          minutesBeforeLesson: minutes,
+          tolerance: _leadTolerance(hours * 60 + minutes, criticalLead),
+          lessonName: lessonName,
+          teacherName: teacherName,
+        ));
+      }
+
+      final counts = await NativeAlarmService.syncAlarms(alarms);
+      if (counts == null) {
+        return 0;
+      }
+
+      if (kDebugMode) {
+        print('AlarmService: Synced ${alarms.length} alarms: $counts');
+      }
+
+      return alarms.length;
+    } catch (e) {
+      if (kDebugMode) {
+        print('AlarmService: Error syncing alarms: $e');
+      }
+      return 0;
+    }
+  }
+
+  /// Keep alarms armed for every entry of [alarmTimes] before each of the weekly
+  /// [lessons]. The native layer expands the lessons itself and keeps the next
+  /// ones armed for the rest of the term, so this only needs calling again
+  /// when the timetable or the alarm times change.
+  /// Pass [requestPermission] as false where no page can show the exact alarm
+  /// permission prompt; the native layer then arms inexact alarms if needed.
+  /// Returns the number of alarms armed now.
+  static Future<int> syncLessonRules({
+    required List<WeeklyLesson> lessons,
+    required List<Map<String, int>> alarmTimes,
+    required String lessonName,
+    required String teacherName,
+    bool requestPermission = true,
+  }) async {
+    if (!supportsAlarmSync) {
+      return 0;
+    }
+
+    try {
+      if (requestPermission && !await _ensureExactAlarmPermission()) {
+        return 0;
+      }
+
+      final criticalLead = _criticalLead(alarmTimes);
+      final leads = <int, String>{};
+      final leadTolerances = <int, Duration>{};
+      for (final alarmTime in alarmTimes) {
+        final hours = alarmTime['hours'] ?? 0;
+        final minutes = alarmTime['minutes'] ?? 15;
+        final lead = hours * 60 + minutes;
+        leads[lead] = _buildNotificationBody(
+          lessonName: lessonName,
+          teacherName: teacherName,
+          hoursBeforeLesson: hours,
+          minutesBeforeLesson: minutes,
+        );
+        leadTolerances[lead] = _leadTolerance(lead, criticalLead);
+      }
+
+      final rules = [
+        for (final lesson in lessons)
+          NativeLessonRule(
+            weekday: lesson.weekday,
+            hour: lesson.hour,
+            minute: lesson.minute,
+            timeZone: _lessonTimeZone,
+            title: 'منبه الحصة',
+            leads: leads,
+            leadTolerances: leadTolerances,
+            postponements: {
+              if (lesson.postponedFrom != null && lesson.postponedTo != null)
+                lesson.postponedFrom!: lesson.postponedTo!,
+            },
+          ),
+      ];
+
+      return await NativeAlarmService.setLessonRules(rules) ?? 0;
+    } catch (e) {
+      if (kDebugMode) {
+        print('AlarmService: Error setting lesson rules: $e');
+      }
+      return 0;
+    }
+  }
+
+  /// Build native alarm records for the lessons whose alarm time is still ahead
+  static List<NativeAlarm> _buildNativeAlarms({
+    required List<DateTime> lessonDateTimes,
+    required int hoursBeforeLesson,
+    required int minutesBeforeLesson,
+    required Duration tolerance,
+    required String lessonName,
+    required String teacherName,
+  }) {
+    final notificationBody = _buildNotificationBody(
+      lessonName: lessonName,
+      teacherName: teacherName,
+      hoursBeforeLesson: hoursBeforeLesson,
+      minutesBeforeLesson: minutesBeforeLesson,
+    );
+
+    final now = DateTime.now();
+    final alarms = <NativeAlarm>[];
+    for (final lessonDateTime in lessonDateTimes) {
+      final alarmTime = lessonDateTime.subtract(
+        Duration(hours: hoursBeforeLesson, minutes: minutesBeforeLesson),
+      );
+      if (alarmTime.isBefore(now)) {
+        continue;
+      }
+
+      alarms.add(NativeAlarm(
+        id: alarmTime.millisecondsSinceEpoch % 2147483647,
+        dateTime: alarmTime,
+        title: 'منبه الحصة',
+        body: notificationBody,
+        tolerance: tolerance,
+      ));
+    }
+    return alarms;
+  }
+
+  /// Minutes before the lesson of the last alarm in [alarmTimes]
+  static int _criticalLead(List<Map<String, int>> alarmTimes) {
+    var lead = -1;
+    for (final alarmTime in alarmTimes) {
+      final minutes =
+          (alarmTime['hours'] ?? 0) * 60 + (alarmTime['minutes'] ?? 15);
+      if (lead < 0 || minutes < lead) {
+        lead = minutes;
+      }
+    }
+    return lead;
+  }
+
+  /// The alarm closest to the lesson must ring on time. Earlier ones are
+  /// reminders and may fire up to a sixth of their lead late, at most 15 minutes,
+  /// so the system can batch them with other wakeups.
+  static Duration _leadTolerance(int lead, int criticalLead) {
+    if (lead <= criticalLead) {
+      return Duration.zero;
+    }
+    return Duration(minutes: lead ~/ 6 < 15 ? lead ~/ 6 : 15);
+  }
+
+  /// Check for exact alarm permission on Android 12+, requesting it if needed
+  static Future<bool> _ensureExactAlarmPermission() async {
+    if (defaultTargetPlatform == TargetPlatform.android) {
+      if (await Permission.scheduleExactAlarm.isDenied) {
+        if (kDebugMode) {
+          print(
+              'AlarmService: Schedule Exact Alarm permission denied, requesting...');
+        }
+        final status = await Permission.scheduleExactAlarm.request();
+        if (!status.isGranted) {
+          if (kDebugMode) {
+            print('AlarmService: Schedule Exact Alarm permission NOT granted');
+          }
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  static String _buildNotificationBody({
+    required String lessonName,
+    required String teacherName,
+    required int hoursBeforeLesson,
+    required int minutesBeforeLesson,
+  }) {
+    return 'الحصة مع $teacherName - $lessonName\nستبدأ بعد ${hoursBeforeLesson > 0 ? "$hoursBeforeLesson ساعة و" : ""}$minutesBeforeLesson دقيقة';
+  }
+
+  /// Cancel all alarms.
+  /// Pass [includeNative] as false to keep the native alarms armed, e.g. when
+  /// they are about to be replaced through [syncAlarms].
+  static Future<void> cancelAllAlarms({bool includeNative = true}) async {
     try {
       if (kDebugMode) {
         print('AlarmService: Attempting to cancel all alarms');
       }
 
       // Cancel native Android alarms
+      if (includeNative) {
+        await NativeAlarmService.cancelAllAlarms();
+      }
 
       // Add timeout to prevent hanging
       await Alarm.stopAll().timeout(
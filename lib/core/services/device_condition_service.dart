@@ -0,0 +1,56 @@
+import 'dart:io';
+import 'package:flutter/foundation.dart';
+import 'package:flutter/services.dart';
+
+/// Thermal and battery state reported by the native side
+class DeviceConditions {
+  /// Android PowerManager thermal status: 0 none, 1 light, 2 moderate,
+  /// 3 severe, 4 critical, 5 emergency, 6 shutdown
+  final int thermalStatus;
+  final bool powerSave;
+
+  /// Battery percentage, or -1 if unknown
+  final int batteryLevel;
+  final bool charging;
+
+  const DeviceConditions({
+    this.thermalStatus = 0,
+    this.powerSave = false,
+    this.batteryLevel = -1,
+    this.charging = false,
+  });
+
+  static DeviceConditions fromMap(Map<dynamic, dynamic> map) {
+    return DeviceConditions(
+      thermalStatus: map['thermal_status'] as int? ?? 0,
+      powerSave: map['power_save'] as bool? ?? false,
+      batteryLevel: map['battery_level'] as int? ?? -1,
+      charging: map['charging'] as bool? ?? false,
+    );
+  }
+
+  @override
+  String toString() =>
+      'DeviceConditions(thermal: $thermalStatus, powerSave: $powerSave, battery: $batteryLevel%, charging: $charging)';
+}
+
+/// Stream of device thermal status, battery saver and battery level (Android only).
+/// The current state is sent as soon as a listener subscribes.
+class DeviceConditionService {
+  static const EventChannel _channel = EventChannel('com.zuwad/device_conditions');
+
+  static Stream<DeviceConditions> get conditions {
+    if (!Platform.isAndroid) {
+      return const Stream.empty();
+    }
+
+    return _channel
+        .receiveBroadcastStream()
+        .map((event) => DeviceConditions.fromMap(event as Map<dynamic, dynamic>))
+        .handleError((e) {
+      if (kDebugMode) {
+        print('DeviceConditionService: Error reading device conditions: $e');
+      }
+    });
+  }
+}
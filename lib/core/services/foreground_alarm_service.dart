@@ -2,20 +2,25 @@ import 'dart:io';
 import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 
-/// Service to keep the app alive in the background using Android foreground service
-/// This is necessary for alarms to trigger reliably when the app is minimized or closed
+/// Service to keep alarms ready using an Android foreground service.
+/// The native side only runs the service within [leadWindow] before the next
+/// armed alarm and stops it once that alarm fires or is cancelled.
 class ForegroundAlarmService {
   static const MethodChannel _channel = MethodChannel('com.zuwad/foreground_alarm');
   static bool _isInitialized = false;
 
-  /// Initialize the foreground service to keep app alive
-  static Future<void> initialize() async {
+  /// Enable the foreground service for the [leadWindow] before each alarm
+  static Future<void> initialize({
+    Duration leadWindow = const Duration(minutes: 15),
+  }) async {
     if (!Platform.isAndroid || _isInitialized) {
       return;
     }
 
     try {
-      await _channel.invokeMethod('startForegroundService');
+      await _channel.invokeMethod('startForegroundService', {
+        'lead_window_ms': leadWindow.inMilliseconds,
+      });
       _isInitialized = true;
       if (kDebugMode) {
         print('ForegroundAlarmService: Started successfully');
@@ -27,7 +32,7 @@ class ForegroundAlarmService {
     }
   }
 
-  /// Stop the foreground service
+  /// Stop the foreground service and disable it for future alarms
   static Future<void> stop() async {
     if (!Platform.isAndroid) {
       return;
@@ -46,6 +51,6 @@ class ForegroundAlarmService {
     }
   }
 
-  /// Check if the service is running
+  /// Check if the service is enabled
   static bool get isRunning => _isInitialized;
 }
@@ -0,0 +1,127 @@
+import 'dart:io';
+import 'package:flutter/foundation.dart';
+import 'package:flutter/widgets.dart';
+import 'package:flutter/services.dart';
+
+/// Memory state reported by the native side when Android asks the app to trim
+class MemoryPressure {
+  /// Android ComponentCallbacks2 trim level, or 0 for the state sent on listen
+  final int level;
+
+  /// Java heap usage and limit in bytes
+  final int heapUsed;
+  final int heapMax;
+
+  /// Native heap usage and size in bytes, including the engine and WebRTC
+  final int nativeHeapUsed;
+  final int nativeHeapSize;
+
+  /// Memory available to the whole system in bytes, or -1 if unknown
+  final int available;
+
+  /// Whether the system considers itself low on memory
+  final bool lowMemory;
+
+  // ComponentCallbacks2 levels
+  static const int runningModerate = 5;
+  static const int runningLow = 10;
+  static const int runningCritical = 15;
+  static const int uiHidden = 20;
+  static const int background = 40;
+  static const int moderate = 60;
+  static const int complete = 80;
+
+  const MemoryPressure({
+    this.level = 0,
+    this.heapUsed = 0,
+    this.heapMax = 0,
+    this.nativeHeapUsed = 0,
+    this.nativeHeapSize = 0,
+    this.available = -1,
+    this.lowMemory = false,
+  });
+
+  /// Whether the process is at risk of being killed and should give memory back.
+  /// [uiHidden] only means the UI went away.
+  bool get isSevere => level >= runningCritical && level != uiHidden;
+
+  static MemoryPressure fromMap(Map<dynamic, dynamic> map) {
+    return MemoryPressure(
+      level: map['level'] as int? ?? 0,
+      heapUsed: map['heap_used'] as int? ?? 0,
+      heapMax: map['heap_max'] as int? ?? 0,
+      nativeHeapUsed: map['native_heap_used'] as int? ?? 0,
+      nativeHeapSize: map['native_heap_size'] as int? ?? 0,
+      available: map['available'] as int? ?? -1,
+      lowMemory: map['low_memory'] as bool? ?? false,
+    );
+  }
+
+  @override
+  String toString() =>
+      'MemoryPressure(level: $level, heap: ${heapUsed >> 20}/${heapMax >> 20} MB, native: ${nativeHeapUsed >> 20} MB, available: ${available >> 20} MB, low: $lowMemory)';
+}
+
+/// Stream of memory pressure from Android's onTrimMemory (Android only).
+/// The current usage is sent as soon as the first listener subscribes.
+///
+/// Native caches are shed on the native side, and Flutter already clears the
+/// image cache on memory pressure; listeners release what only Dart knows about.
+class MemoryPressureService {
+  static const EventChannel _channel = EventChannel('com.zuwad/memory_pressure');
+
+  // One native subscription shared by every listener; made again by [listen]
+  // if the native side never saw it
+  static Stream<MemoryPressure>? _events;
+
+  // Set once the usage sent on listen has arrived
+  static bool _connected = false;
+
+  static Stream<MemoryPressure> get events {
+    if (!Platform.isAndroid) {
+      return const Stream.empty();
+    }
+    return _events ??= _channel
+        .receiveBroadcastStream()
+        .map((event) => MemoryPressure.fromMap(event as Map<dynamic, dynamic>))
+        .handleError((e) {
+      if (kDebugMode) {
+        print('MemoryPressureService: Error reading memory pressure: $e');
+      }
+    });
+  }
+
+  /// Release app-wide caches under severe pressure for the rest of the session
+  static void listen() {
+    if (!Platform.isAndroid) {
+      return;
+    }
+    _subscribe();
+
+    // In an engine warmed before an alarm, main() runs before MainActivity
+    // registers the native handler, so that first listen is lost. Subscribe
+    // again on a fresh stream once the activity resumes the app. The old stream
+    // is not cancelled; the native side never saw it.
+    AppLifecycleListener(onResume: () {
+      if (_connected) {
+        return;
+      }
+      _events = null;
+      _subscribe();
+    });
+  }
+
+  static void _subscribe() {
+    events.listen((pressure) {
+      _connected = true;
+      if (kDebugMode) {
+        print('MemoryPressureService: $pressure');
+      }
+      if (pressure.isSevere) {
+        // The framework already cleared the cache; this also stops tracking images
+        // still in use, so they are freed as soon as they leave the screen
+        PaintingBinding.instance.imageCache.clearLiveImages();
+      }
+    });
+  }
+}
@@ -3,10 +3,201 @@ import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 import 'package:alarm/alarm.dart' as alarm_pkg;
 
+/// A single alarm record for the bulk native alarm calls
+class NativeAlarm {
+  final int id;
+  final DateTime dateTime;
+  final String title;
+  final String body;
+
+  /// How late the alarm may fire. Zero marks a critical alarm, delivered exactly;
+  /// anything else is an early reminder the system may batch with other wakeups.
+  final Duration tolerance;
+
+  const NativeAlarm({
+    required this.id,
+    required this.dateTime,
+    required this.title,
+    required this.body,
+    this.tolerance = Duration.zero,
+  });
+}
+
+/// An alarm notification the user tapped to open the app
+class NativeAlarmTap {
+  final int id;
+  final String? title;
+  final String? body;
+
+  /// When the alarm was set to ring, or null for a tap from an older build
+  final DateTime? alarmTime;
+
+  /// Every alarm in the group when the grouped summary was tapped
+  final List<int> ids;
+
+  const NativeAlarmTap({
+    required this.id,
+    this.title,
+    this.body,
+    this.alarmTime,
+    this.ids = const [],
+  });
+
+  static NativeAlarmTap? fromMap(Map<dynamic, dynamic>? map) {
+    final id = map?['alarm_id'];
+    if (id is! int) {
+      return null;
+    }
+    return NativeAlarmTap(
+      id: id,
+      title: map!['title'] as String?,
+      body: map['body'] as String?,
+      alarmTime: map['trigger_at'] is int
+          ? DateTime.fromMillisecondsSinceEpoch(map['trigger_at'] as int)
+          : null,
+      ids: (map['alarm_ids'] as List<dynamic>?)?.cast<int>() ?? [id],
+    );
+  }
+}
+
+/// A weekly lesson slot the native layer keeps alarms armed for.
+/// Times are wall-clock times in [timeZone].
+class NativeLessonRule {
+  /// [DateTime.monday] to [DateTime.sunday]
+  final int weekday;
+  final int hour;
+  final int minute;
+
+  /// IANA time zone of [hour] and [minute], e.g. 'Africa/Cairo'
+  final String timeZone;
+  final String title;
+
+  /// Notification body for each alarm, keyed by minutes before the lesson
+  final Map<int, String> leads;
+
+  /// Delivery tolerance for each alarm, keyed like [leads]. Missing leads are critical,
+  /// see [NativeAlarm.tolerance].
+  final Map<int, Duration> leadTolerances;
+
+  /// Dates of regular lessons that do not take place
+  final List<DateTime> exceptions;
+
+  /// Regular lesson dates mapped to the date and time the lesson moved to
+  final Map<DateTime, DateTime> postponements;
+
+  const NativeLessonRule({
+    required this.weekday,
+    required this.hour,
+    required this.minute,
+    required this.timeZone,
+    required this.title,
+    required this.leads,
+    this.leadTolerances = const {},
+    this.exceptions = const [],
+    this.postponements = const {},
+  });
+
+  Map<String, Object> toMap() {
+    return {
+      'day': weekday,
+      'hour': hour,
+      'minute': minute,
+      'zone': timeZone,
+      'title': title,
+      'leads': [
+        for (final lead in leads.entries) ...[lead.key, lead.value],
+      ],
+      'lead_tolerances': [
+        for (final lead in leads.keys)
+          leadTolerances[lead]?.inMilliseconds ?? 0,
+      ],
+      'exceptions': [for (final date in exceptions) _isoDate(date)],
+      'postponements': [
+        for (final move in postponements.entries) ...[
+          _isoDate(move.key),
+          '${_isoDate(move.value)}T${_twoDigits(move.value.hour)}:${_twoDigits(move.value.minute)}',
+        ],
+      ],
+    };
+  }
+
+  static String _isoDate(DateTime date) =>
+      '${date.year.toString().padLeft(4, '0')}-${_twoDigits(date.month)}-${_twoDigits(date.day)}';
+
+  static String _twoDigits(int value) => value.toString().padLeft(2, '0');
+}
+
+enum AlarmEventType {
+  fired,
+  dismissed,
+  rescheduled,
+  permissionChanged,
+
+  /// The server changed the alarms through a push while the app was closed
+  remoteUpdate,
+  unknown,
+}
+
+/// A change in the native alarm layer, pushed over `com.zuwad/alarm_events`
+class AlarmEvent {
+  final AlarmEventType type;
+
+  /// The alarm concerned, or 0 for permission changes and lesson postponements
+  final int alarmId;
+
+  /// When the event happened, which may be before the app was opened
+  final DateTime time;
+
+  /// The alarm's trigger time for fired and rescheduled events, and for remote
+  /// updates that armed an alarm
+  final DateTime? triggerAt;
+
+  /// Whether exact alarms are allowed, for permission changes
+  final bool? exactAlarmsAllowed;
+
+  const AlarmEvent({
+    required this.type,
+    required this.alarmId,
+    required this.time,
+    this.triggerAt,
+    this.exactAlarmsAllowed,
+  });
+
+  static AlarmEvent fromMap(Map<dynamic, dynamic> map) {
+    final type = switch (map['event']) {
+      'fired' => AlarmEventType.fired,
+      'dismissed' => AlarmEventType.dismissed,
+      'rescheduled' => AlarmEventType.rescheduled,
+      'permission_changed' => AlarmEventType.permissionChanged,
+      'remote_update' => AlarmEventType.remoteUpdate,
+      _ => AlarmEventType.unknown,
+    };
+    final value = map['value'] as int? ?? 0;
+    final hasTrigger = type == AlarmEventType.fired ||
+        type == AlarmEventType.rescheduled ||
+        (type == AlarmEventType.remoteUpdate && value > 0);
+    return AlarmEvent(
+      type: type,
+      alarmId: map['alarm_id'] as int? ?? 0,
+      time: DateTime.fromMillisecondsSinceEpoch(map['time'] as int? ?? 0),
+      triggerAt:
+          hasTrigger ? DateTime.fromMillisecondsSinceEpoch(value) : null,
+      exactAlarmsAllowed:
+          type == AlarmEventType.permissionChanged ? value == 1 : null,
+    );
+  }
+
+  @override
+  String toString() => 'AlarmEvent(${type.name}, id: $alarmId, at: $time)';
+}
+
 /// Native alarm service that uses Android's AlarmManager directly
 /// This ensures alarms work even when app is terminated
 class NativeAlarmService {
   static const MethodChannel _channel = MethodChannel('com.zuwad/native_alarm');
+  static const EventChannel _eventChannel = EventChannel('com.zuwad/alarm_events');
+
+  static Stream<AlarmEvent>? _events;
 
   static bool _isInitialized = false;
 
@@ -29,12 +220,72 @@ class NativeAlarmService {
     }
   }
 
-  /// Schedule a native alarm
+  /// Alarm lifecycle events: fired, dismissed from the notification,
+  /// rescheduled, and exact alarm permission changes.
+  ///
+  /// Events raised while the app was closed are replayed, oldest first, when
+  /// the stream is first listened to; later listeners only see new events.
+  static Stream<AlarmEvent> get events {
+    if (!Platform.isAndroid) {
+      return const Stream.empty();
+    }
+
+    return _events ??= _eventChannel
+        .receiveBroadcastStream()
+        .map((event) => AlarmEvent.fromMap(event as Map<dynamic, dynamic>))
+        .handleError((e) {
+      if (kDebugMode) {
+        print('NativeAlarmService: Error reading alarm events: $e');
+      }
+    });
+  }
+
+  /// Listen for taps on native alarm notifications.
+  /// [onTap] is called for the tap that launched the app (cold start) and for
+  /// every later tap while the app is running (warm start).
+  static Future<void> listenForAlarmTaps(
+    void Function(NativeAlarmTap tap) onTap,
+  ) async {
+    if (!Platform.isAndroid) {
+      return;
+    }
+
+    _channel.setMethodCallHandler((call) async {
+      if (call.method == 'onAlarmTapped') {
+        final tap = NativeAlarmTap.fromMap(call.arguments as Map<dynamic, dynamic>?);
+        if (tap != null) {
+          onTap(tap);
+        }
+        return true;
+      }
+      throw MissingPluginException();
+    });
+
+    try {
+      final result = await _channel.invokeMethod<Map<dynamic, dynamic>>('getLaunchAlarm');
+      final tap = NativeAlarmTap.fromMap(result);
+      if (tap != null) {
+        if (kDebugMode) {
+          print('NativeAlarmService: Launched from alarm ${tap.id}');
+        }
+        onTap(tap);
+      }
+    } catch (e) {
+      // No activity attached yet, e.g. in an engine warmed before an alarm;
+      // the tap is pushed with onAlarmTapped once the app is opened.
+      if (kDebugMode) {
+        print('NativeAlarmService: No launch alarm: $e');
+      }
+    }
+  }
+
+  /// Schedule a native alarm. Replaces any rules set with [setLessonRules].
   static Future<bool> scheduleAlarm({
     required int id,
     required DateTime dateTime,
     required String title,
     required String body,
+    Duration tolerance = Duration.zero,
   }) async {
     if (!Platform.isAndroid) {
       // Fallback to alarm package for non-Android platforms
@@ -47,6 +298,7 @@ class NativeAlarmService {
         'timestamp': dateTime.millisecondsSinceEpoch,
         'title': title,
         'body': body,
+        'tolerance_ms': tolerance.inMilliseconds,
       });
 
       if (kDebugMode) {
@@ -62,6 +314,122 @@ class NativeAlarmService {
     }
   }
 
+  /// Schedule several native alarms in a single platform-channel call.
+  /// Replaces any rules set with [setLessonRules].
+  /// Returns one result per alarm, in the same order as [alarms].
+  static Future<List<bool>> scheduleAlarms(List<NativeAlarm> alarms) async {
+    if (!Platform.isAndroid || alarms.isEmpty) {
+      return List<bool>.filled(alarms.length, false);
+    }
+
+    try {
+      final result = await _channel.invokeMethod<List<dynamic>>(
+        'scheduleAlarms',
+        {'alarms': _toRecords(alarms)},
+      );
+      final results = result?.map((r) => r == true).toList() ??
+          List<bool>.filled(alarms.length, false);
+
+      if (kDebugMode) {
+        print(
+          'NativeAlarmService: Scheduled ${results.where((r) => r).length}/${alarms.length} alarms',
+        );
+      }
+
+      return results;
+    } catch (e) {
+      if (kDebugMode) {
+        print('NativeAlarmService: Error scheduling alarms: $e');
+      }
+      return List<bool>.filled(alarms.length, false);
+    }
+  }
+
+  /// Make the armed native alarms match [alarms] exactly.
+  /// The native side diffs against what is already armed and only applies the
+  /// inserts, updates and deletes. Returns the number of alarms in each group,
+  /// or null if the sync failed.
+  static Future<Map<String, int>?> syncAlarms(List<NativeAlarm> alarms) async {
+    if (!Platform.isAndroid) {
+      return null;
+    }
+
+    try {
+      final result = await _channel.invokeMethod<Map<dynamic, dynamic>>(
+        'syncAlarms',
+        {'alarms': _toRecords(alarms)},
+      );
+      final counts = {
+        'inserted': (result?['inserted'] as int?) ?? 0,
+        'updated': (result?['updated'] as int?) ?? 0,
+        'removed': (result?['removed'] as int?) ?? 0,
+      };
+
+      if (kDebugMode) {
+        print('NativeAlarmService: Synced ${alarms.length} alarms: $counts');
+      }
+
+      return counts;
+    } catch (e) {
+      if (kDebugMode) {
+        print('NativeAlarmService: Error syncing alarms: $e');
+      }
+      return null;
+    }
+  }
+
+  /// Hand the weekly timetable to the native layer, replacing any alarms set
+  /// before. Only the next [occurrences] lessons of each rule are armed; the
+  /// native side rolls them forward after each alarm, after a reboot and on
+  /// clock or time zone changes, without Dart.
+  /// Returns the number of alarms armed, or null on failure.
+  static Future<int?> setLessonRules(
+    List<NativeLessonRule> rules, {
+    int occurrences = 2,
+  }) async {
+    if (!Platform.isAndroid) {
+      return null;
+    }
+
+    try {
+      final result = await _channel.invokeMethod<int>('setLessonRules', {
+        'rules': [for (final rule in rules) rule.toMap()],
+        'occurrences': occurrences,
+      });
+
+      if (kDebugMode) {
+        print('NativeAlarmService: Set ${rules.length} lesson rules, $result alarms armed');
+      }
+
+      return result;
+    } catch (e) {
+      if (kDebugMode) {
+        print('NativeAlarmService: Error setting lesson rules: $e');
+      }
+      return null;
+    }
+  }
+
+  /// Set how close together alarms must be to be delivered in one wakeup.
+  /// Alarms due within [window] of each other are shown as a single
+  /// notification group with one sound and vibration. While the foreground
+  /// lead window is enabled, the window is capped just below the lead time.
+  static Future<void> setCoalescingWindow(Duration window) async {
+    if (!Platform.isAndroid) {
+      return;
+    }
+
+    try {
+      await _channel.invokeMethod('setCoalescingWindow', {
+        'window_ms': window.inMilliseconds,
+      });
+    } catch (e) {
+      if (kDebugMode) {
+        print('NativeAlarmService: Error setting coalescing window: $e');
+      }
+    }
+  }
+
   /// Cancel a specific alarm
   static Future<void> cancelAlarm(int id) async {
     if (!Platform.isAndroid) {
@@ -80,6 +448,30 @@ class NativeAlarmService {
     }
   }
 
+  /// Cancel several alarms in a single platform-channel call
+  static Future<List<bool>> cancelAlarms(List<int> ids) async {
+    if (!Platform.isAndroid || ids.isEmpty) {
+      return List<bool>.filled(ids.length, false);
+    }
+
+    try {
+      final result = await _channel.invokeMethod<List<dynamic>>(
+        'cancelAlarms',
+        {'alarm_ids': ids},
+      );
+      if (kDebugMode) {
+        print('NativeAlarmService: Cancelled ${ids.length} alarms');
+      }
+      return result?.map((r) => r == true).toList() ??
+          List<bool>.filled(ids.length, false);
+    } catch (e) {
+      if (kDebugMode) {
+        print('NativeAlarmService: Error cancelling alarms: $e');
+      }
+      return List<bool>.filled(ids.length, false);
+    }
+  }
+
   /// Cancel all alarms
   static Future<void> cancelAllAlarms() async {
     if (!Platform.isAndroid) {
@@ -97,4 +489,19 @@ class NativeAlarmService {
       }
     }
   }
+
+  /// Flatten alarms into (id, timestamp, title, body, tolerance) records to keep the
+  /// message compact
+  static List<Object> _toRecords(List<NativeAlarm> alarms) {
+    final records = <Object>[];
+    for (final alarm in alarms) {
+      records
+        ..add(alarm.id)
+        ..add(alarm.dateTime.millisecondsSinceEpoch)
+        ..add(alarm.title)
+        ..add(alarm.body)
+        ..add(alarm.tolerance.inMilliseconds);
+    }
+    return records;
+  }
 }
@@ -0,0 +1,102 @@
+import 'package:flutter/foundation.dart';
+import 'package:flutter/services.dart';
+import 'package:shared_preferences/shared_preferences.dart';
+import '../../features/student_dashboard/data/repositories/schedule_repository.dart';
+import '../../features/student_dashboard/domain/services/lesson_schedule_helper.dart';
+import '../utils/timezone_helper.dart';
+import 'alarm_service.dart';
+
+/// Keeps the native lesson alarms in step with the timetable on the server
+/// while the app is closed.
+///
+/// A periodic native job starts a headless engine on [scheduleRefreshMain],
+/// which calls [runInBackground]. Postponements and new lessons then reach the
+/// alarms without the user opening the app.
+///
+/// To try it against a local stub of the schedule API, build with
+/// `--dart-define=BASE_URL=http://10.0.2.2:8080` and force the job with
+/// `adb shell cmd jobscheduler run -f com.zuwad 4201`.
+class ScheduleRefreshService {
+  static const MethodChannel _channel = MethodChannel(
+    'com.zuwad/schedule_refresh',
+  );
+
+  static const String _keyStudentId = 'schedule_refresh_student_id';
+  static const String _keyLessonName = 'schedule_refresh_lesson_name';
+  static const String _keyTeacherName = 'schedule_refresh_teacher_name';
+
+  /// Remember whose timetable the lesson rules were built from
+  static Future<void> remember({
+    required int studentId,
+    required String lessonName,
+    required String teacherName,
+  }) async {
+    try {
+      final prefs = await SharedPreferences.getInstance();
+      await prefs.setInt(_keyStudentId, studentId);
+      await prefs.setString(_keyLessonName, lessonName);
+      await prefs.setString(_keyTeacherName, teacherName);
+    } catch (e) {
+      if (kDebugMode) {
+        print('ScheduleRefreshService: Error saving refresh context: $e');
+      }
+    }
+  }
+
+  /// Fetch the timetable again and hand the new lesson rules to the native
+  /// layer. Returns false if the refresh should be retried later.
+  static Future<bool> refresh({ScheduleRepository? repository}) async {
+    try {
+      final settings = await AlarmService.getMultipleAlarmSettings();
+      if (settings['enabled'] != true || settings['repeatForAll'] != true) {
+        // Alarms are off, or only set for the next lesson
+        return true;
+      }
+
+      final prefs = await SharedPreferences.getInstance();
+      final studentId = prefs.getInt(_keyStudentId);
+      if (studentId == null) {
+        return true;
+      }
+
+      final studentSchedules = await (repository ?? ScheduleRepository())
+          .getStudentSchedules(studentId, forceRefresh: true);
+      if (studentSchedules.isEmpty) {
+        // Keep the current rules rather than silencing every alarm
+        return true;
+      }
+
+      final armed = await AlarmService.syncLessonRules(
+        lessons: LessonScheduleHelper.weeklyLessons(studentSchedules),
+        alarmTimes: List<Map<String, int>>.from(settings['alarmTimes']),
+        lessonName: prefs.getString(_keyLessonName) ?? '',
+        teacherName: prefs.getString(_keyTeacherName) ?? 'المعلم',
+        requestPermission: false,
+      );
+
+      if (kDebugMode) {
+        print('ScheduleRefreshService: Refreshed, $armed alarms armed');
+      }
+      return true;
+    } catch (e) {
+      if (kDebugMode) {
+        print('ScheduleRefreshService: Error refreshing schedule: $e');
+      }
+      return false;
+    }
+  }
+
+  /// Body of the background entrypoint: refresh, then tell the native job it
+  /// can destroy the engine.
+  static Future<void> runInBackground() async {
+    await TimezoneHelper.initialize();
+    final success = await refresh();
+    try {
+      await _channel.invokeMethod('finished', {'success': success});
+    } catch (e) {
+      if (kDebugMode) {
+        print('ScheduleRefreshService: Error reporting result: $e');
+      }
+    }
+  }
+}
@@ -79,6 +79,14 @@ class _MeetingPageState extends State<MeetingPage> with WidgetsBindingObserver {
 
   late final AudioPlayer _audioPlayer;
 
+  // Picture-in-picture state, reported by MainActivity
+  bool _isInPip = false;
+  Size _pipWindowSize = Size.zero;
+  final GlobalKey _pipSourceKey = GlobalKey();
+  String? _lastPipSource;
+  // Inputs the PiP video policy was last applied for, see _pipPolicyKey
+  String? _lastPipPolicy;
+
   @override
   void initState() {
     if (kDebugMode) {
@@ -95,6 +103,7 @@ class _MeetingPageState extends State<MeetingPage> with WidgetsBindingObserver {
     _enableWakeLock();
 
     // Enable PiP mode for this page
+    _pipChannel.setMethodCallHandler(_handlePipCall);
     _enablePiP();
 
     // Initialize AudioPlayer
@@ -129,6 +138,7 @@ class _MeetingPageState extends State<MeetingPage> with WidgetsBindingObserver {
     // Disable wake lock when leaving meeting page
     _disableWakeLock();
     // Disable PiP mode when leaving meeting page
+    _pipChannel.setMethodCallHandler(null);
     _disablePiP();
     // Dispose event listener if initialized
     _roomListener?.dispose();
@@ -140,6 +150,12 @@ class _MeetingPageState extends State<MeetingPage> with WidgetsBindingObserver {
     super.dispose();
   }
 
+  @override
+  void didChangeMetrics() {
+    // Rotation or resize moves the video area PiP animates from
+    WidgetsBinding.instance.addPostFrameCallback((_) => _updatePipSource());
+  }
+
   @override
   void didChangeAppLifecycleState(AppLifecycleState state) {
     if (state == AppLifecycleState.resumed && _checkingPermissions) {
@@ -271,6 +287,143 @@ class _MeetingPageState extends State<MeetingPage> with WidgetsBindingObserver {
       }
     }
   }
+  Future<dynamic> _handlePipCall(MethodCall call) async {
+    if (call.method == 'onPipModeChanged') {
+      final args = call.arguments as Map<dynamic, dynamic>;
+      final inPip = args['in_pip'] == true;
+      final windowSize = Size(
+        (args['width'] as int).toDouble(),
+        (args['height'] as int).toDouble(),
+      );
+      if (kDebugMode) {
+        print('MeetingPage: PiP ${inPip ? 'entered' : 'exited'} ($windowSize)');
+      }
+      if (!mounted) return null;
+      setState(() {
+        _isInPip = inPip;
+        _pipWindowSize = windowSize;
+      });
+      await _applyPipVideoPolicy();
+    }
+    return null;
+  }
+
+  /// The participant shown in the PiP window: whoever shares their screen,
+  /// otherwise the teacher, otherwise the first remote participant.
+  Participant? _pipFocusParticipant() {
+    if (_screenShareParticipant != null) return _screenShareParticipant;
+    for (final participant in _participants) {
+      if (participant.name.toLowerCase().contains(widget.teacherName.toLowerCase()) ||
+          participant.identity == widget.teacherName) {
+        return participant;
+      }
+    }
+    return _participants.isNotEmpty ? _participants.first : _localParticipant;
+  }
+
+  /// The video publication shown for [participant] in PiP
+  bool _isPipFocusPublication(Participant participant, TrackPublication publication) {
+    if (participant != _pipFocusParticipant()) return false;
+    final isScreenShare = publication.source == TrackSource.screenShareVideo;
+    return participant == _screenShareParticipant ? isScreenShare : !isScreenShare;
+  }
+
+  /// PiP mode, window size and the remote video tracks the PiP policy acts on
+  String _pipPolicyKey() {
+    final key = StringBuffer('$_isInPip ${_pipWindowSize.shortestSide}');
+    for (final participant in _participants) {
+      if (participant is! RemoteParticipant) continue;
+      for (final publication in participant.videoTrackPublications) {
+        key.write(' ${publication.sid}:${publication.subscribed}');
+        if (_isInPip && _isPipFocusPublication(participant, publication)) {
+          key.write('*');
+        }
+      }
+    }
+    return key.toString();
+  }
+
+  /// In PiP only the focused video is received, on the lowest simulcast layer
+  /// that still fills the window, and every other remote video is paused.
+  /// Leaving PiP resumes everything at full quality.
+  ///
+  /// Room events arrive many times per second, so this does nothing unless
+  /// PiP mode, the window or the set of video tracks changed.
+  Future<void> _applyPipVideoPolicy() async {
+    final policy = _pipPolicyKey();
+    if (policy == _lastPipPolicy) return;
+    _lastPipPolicy = policy;
+
+    final pixelHeight =
+        _pipWindowSize.shortestSide * MediaQuery.of(context).devicePixelRatio;
+    final pipQuality = pixelHeight > 360 ? VideoQuality.MEDIUM : VideoQuality.LOW;
+
+    for (final participant in _participants) {
+      if (participant is! RemoteParticipant) continue;
+      for (final publication in participant.videoTrackPublications) {
+        try {
+          if (!_isInPip) {
+            await publication.enable();
+            await publication.setVideoQuality(VideoQuality.HIGH);
+          } else if (_isPipFocusPublication(participant, publication)) {
+            await publication.enable();
+            // Screen shares stay readable at the middle layer
+            await publication.setVideoQuality(
+                publication.source == TrackSource.screenShareVideo
+                    ? VideoQuality.MEDIUM
+                    : pipQuality);
+          } else {
+            await publication.disable();
+          }
+        } catch (e) {
+          // Try again on the next room event
+          _lastPipPolicy = null;
+          if (kDebugMode) {
+            print('MeetingPage: Failed to update video track ${publication.sid}: $e');
+          }
+        }
+      }
+    }
+  }
+
+  /// Tell MainActivity the aspect ratio of the focused video and where the
+  /// video area is on screen, so entering PiP animates from the right place.
+  void _updatePipSource() {
+    if (!mounted || _isInPip) return;
+    final box = _pipSourceKey.currentContext?.findRenderObject() as RenderBox?;
+    if (box == null || !box.hasSize) return;
+
+    final pixelRatio = MediaQuery.of(context).devicePixelRatio;
+    final rect = box.localToGlobal(Offset.zero) & box.size;
+
+    VideoDimensions? dimensions;
+    final focus = _pipFocusParticipant();
+    if (focus != null) {
+      for (final publication in focus.videoTrackPublications) {
+        if (_isPipFocusPublication(focus, publication)) {
+          dimensions = publication.dimensions;
+          break;
+        }
+      }
+    }
+
+    final args = <String, dynamic>{
+      'width': dimensions?.width,
+      'height': dimensions?.height,
+      'left': (rect.left * pixelRatio).round(),
+      'top': (rect.top * pixelRatio).round(),
+      'right': (rect.right * pixelRatio).round(),
+      'bottom': (rect.bottom * pixelRatio).round(),
+    };
+    final source = args.toString();
+    if (source == _lastPipSource) return;
+    _lastPipSource = source;
+
+    _pipChannel.invokeMethod('setPipSource', args).catchError((e) {
+      if (kDebugMode) print('MeetingPage: Failed to set PiP source: $e');
+    });
+  }
+
 
   Future<void> _openCameraPermissionSettings() async {
     if (kIsWeb) return;
@@ -808,6 +961,13 @@ class _MeetingPageState extends State<MeetingPage> with WidgetsBindingObserver {
         }
       });
     }
+
+    // New or changed tracks: keep the PiP policy and source in sync
+    if (_isInPip) {
+      _applyPipVideoPolicy();
+    } else {
+      WidgetsBinding.instance.addPostFrameCallback((_) => _updatePipSource());
+    }
   }
 
   bool _participantsEqual(List<Participant> a, List<Participant> b) {
@@ -1044,7 +1204,7 @@ class _MeetingPageState extends State<MeetingPage> with WidgetsBindingObserver {
         textDirection: TextDirection.rtl,
         child: Scaffold(
           backgroundColor: Colors.black,
-          body: _buildBody(),
+          body: KeyedSubtree(key: _pipSourceKey, child: _buildBody()),
         ),
       ),
     );
@@ -1189,6 +1349,15 @@ class _MeetingPageState extends State<MeetingPage> with WidgetsBindingObserver {
       ..._participants,
     ];
 
+    // The PiP window only has room for one video and no controls
+    final pipFocus = _isInPip && !_isWhiteboardVisible ? _pipFocusParticipant() : null;
+    if (pipFocus != null) {
+      return ParticipantWidget(
+        participant: pipFocus,
+        isLocal: pipFocus == _localParticipant,
+      );
+    }
+
     // Check if we are in a "Shared Content" mode
     final bool isContentActive =
         _isWhiteboardVisible || _screenShareParticipant != null;
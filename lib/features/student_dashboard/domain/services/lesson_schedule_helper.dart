@@ -0,0 +1,122 @@
+import 'package:flutter/foundation.dart';
+import '../../../../core/services/alarm_service.dart';
+import '../../../../core/utils/timezone_helper.dart';
+import '../models/schedule.dart';
+
+/// Turns the timetable returned by the server into lesson times.
+///
+/// Shared by the alarm settings page and the background schedule refresh,
+/// which has no page to borrow it from.
+class LessonScheduleHelper {
+  static const Map<String, int> lessonDays = {
+    'الأحد': DateTime.sunday,
+    'الاثنين': DateTime.monday,
+    'الثلاثاء': DateTime.tuesday,
+    'الأربعاء': DateTime.wednesday,
+    'الخميس': DateTime.thursday,
+    'الجمعة': DateTime.friday,
+    'السبت': DateTime.saturday,
+  };
+
+  /// Collect the weekly lesson slots, in Egypt time
+  static List<WeeklyLesson> weeklyLessons(
+    List<StudentSchedule> studentSchedules,
+  ) {
+    final nowEgypt = TimezoneHelper.nowInEgypt();
+    final lessons = <WeeklyLesson>[];
+    for (final studentSchedule in studentSchedules) {
+      for (final schedule in studentSchedule.schedules) {
+        final weekday = lessonDays[schedule.day];
+        final scheduledTime = parseTimeString(schedule.hour);
+        if (weekday == null || scheduledTime == null) {
+          continue;
+        }
+
+        DateTime? postponedFrom;
+        DateTime? postponedTo;
+        if (schedule.isPostponed && schedule.postponedDate != null) {
+          final postponedDate = DateTime.tryParse(schedule.postponedDate!);
+          if (postponedDate != null) {
+            // The postponement replaces the next regular lesson
+            postponedFrom = regularLessonTime(schedule, nowEgypt);
+            postponedTo = DateTime(
+              postponedDate.year,
+              postponedDate.month,
+              postponedDate.day,
+              scheduledTime.hour,
+              scheduledTime.minute,
+            );
+          }
+        }
+
+        lessons.add(WeeklyLesson(
+          weekday: weekday,
+          hour: scheduledTime.hour,
+          minute: scheduledTime.minute,
+          postponedFrom: postponedFrom,
+          postponedTo: postponedTo,
+        ));
+      }
+    }
+    return lessons;
+  }
+
+  /// The next regular lesson of [schedule] after [nowEgypt], in Egypt time
+  static DateTime regularLessonTime(Schedule schedule, DateTime nowEgypt) {
+    final scheduledDay = lessonDays[schedule.day] ?? DateTime.sunday;
+    final scheduledTime = parseTimeString(schedule.hour) ?? DateTime.now();
+
+    int daysUntil = (scheduledDay - nowEgypt.weekday) % 7;
+    if (daysUntil == 0) {
+      if (scheduledTime.hour < nowEgypt.hour ||
+          (scheduledTime.hour == nowEgypt.hour &&
+              scheduledTime.minute <= nowEgypt.minute)) {
+        daysUntil = 7;
+      }
+    }
+
+    return DateTime(
+      nowEgypt.year,
+      nowEgypt.month,
+      nowEgypt.day + daysUntil,
+      scheduledTime.hour,
+      scheduledTime.minute,
+    );
+  }
+
+  static DateTime? parseTimeString(String timeString) {
+    try {
+      // Handle both "14:30" and "2:30 PM" formats
+      timeString = timeString.trim();
+
+      // Check if it's 12-hour format with AM/PM
+      final isPM = timeString.toUpperCase().contains('PM');
+      final isAM = timeString.toUpperCase().contains('AM');
+
+      // Remove AM/PM if present
+      String cleanTime =
+          timeString.replaceAll(RegExp(r'[APMapm\s]+'), '').trim();
+
+      final parts = cleanTime.split(':');
+      if (parts.length >= 2) {
+        int hour = int.parse(parts[0]);
+        final minute = int.parse(parts[1]);
+
+        // Convert 12-hour to 24-hour format
+        if (isPM && hour != 12) {
+          hour += 12;
+        } else if (isAM && hour == 12) {
+          hour = 0;
+        }
+
+        final now = DateTime.now();
+        return DateTime(now.year, now.month, now.day, hour, minute);
+      }
+    } catch (e) {
+      if (kDebugMode) {
+        print('Error parsing time string "$timeString": $e');
+      }
+    }
+    return null;
+  }
+}
@@ -6,9 +6,11 @@ import 'package:permission_handler/permission_handler.dart';
 import '../../../auth/presentation/bloc/auth_bloc.dart';
 import '../../../auth/presentation/bloc/auth_state.dart';
 import '../../../../core/services/alarm_service.dart';
+import '../../../../core/services/schedule_refresh_service.dart';
 import '../../data/repositories/schedule_repository.dart';
 import '../../../../core/utils/timezone_helper.dart';
 import '../../domain/models/schedule.dart';
+import '../../domain/services/lesson_schedule_helper.dart';
 
 class AlarmSettingsPage extends StatefulWidget {
   final ScrollController? scrollController;
@@ -211,8 +213,12 @@ class _AlarmSettingsPageState extends State<AlarmSettingsPage> {
         print('AlarmSettings: Saved settings, cancelling existing alarms');
       }
 
+      // Native alarms for all lessons are synced below instead of being
+      // cancelled, so only the lessons that changed are touched.
+      final syncAllLessons = _repeatForAll && AlarmService.supportsAlarmSync;
+
       // Cancel all existing alarms
-      await AlarmService.cancelAllAlarms();
+      await AlarmService.cancelAllAlarms(includeNative: !syncAllLessons);
 
       if (kDebugMode) {
         print('AlarmSettings: Getting student info');
@@ -232,44 +238,62 @@ class _AlarmSettingsPageState extends State<AlarmSettingsPage> {
 
       // Schedule alarms for each configured time with timeout
       int totalScheduled = 0;
-      for (int i = 0; i < _alarmTimes.length; i++) {
-        final alarmTime = _alarmTimes[i];
-        if (kDebugMode) {
-          print(
-            'AlarmSettings: Scheduling alarm ${i + 1}: ${alarmTime.hours}h ${alarmTime.minutes}m',
-          );
-        }
-
+      if (syncAllLessons) {
         try {
-          // Add timeout to prevent hanging
-          await Future.microtask(() async {
-            if (_repeatForAll) {
-              // Schedule alarms for all upcoming lessons
-              await _scheduleAlarmsForAllLessons(
-                student.id,
-                alarmTime.hours,
-                alarmTime.minutes,
-              );
-            } else {
-              // Schedule alarm for next lesson only
-              await _scheduleAlarmForNextLesson(
-                student.id,
-                alarmTime.hours,
-                alarmTime.minutes,
-              );
-            }
-          }).timeout(
+          final synced = await _syncAlarmsForAllLessons(student.id).timeout(
             const Duration(seconds: 10),
             onTimeout: () {
               throw TimeoutException('Scheduling timed out after 10 seconds');
             },
           );
-          totalScheduled++;
+          if (synced > 0) {
+            totalScheduled = _alarmTimes.length;
+          }
         } catch (e) {
           if (kDebugMode) {
-            print('AlarmSettings: Error scheduling alarm ${i + 1}: $e');
+            print('AlarmSettings: Error syncing alarms: $e');
+          }
+        }
+      } else {
+        for (int i = 0; i < _alarmTimes.length; i++) {
+          final alarmTime = _alarmTimes[i];
+          if (kDebugMode) {
+            print(
+              'AlarmSettings: Scheduling alarm ${i + 1}: ${alarmTime.hours}h ${alarmTime.minutes}m',
+            );
+          }
+
+          try {
+            // Add timeout to prevent hanging
+            await Future.microtask(() async {
+              if (_repeatForAll) {
+                // Schedule alarms for all upcoming lessons
+                await _scheduleAlarmsForAllLessons(
+                  student.id,
+                  alarmTime.hours,
+                  alarmTime.minutes,
+                );
+              } else {
+                // Schedule alarm for next lesson only
+                await _scheduleAlarmForNextLesson(
+                  student.id,
+                  alarmTime.hours,
+                  alarmTime.minutes,
+                );
+              }
+            }).timeout(
+              const Duration(seconds: 10),
+              onTimeout: () {
+                throw TimeoutException('Scheduling timed out after 10 seconds');
+              },
+            );
+            totalScheduled++;
+          } catch (e) {
+            if (kDebugMode) {
+              print('AlarmSettings: Error scheduling alarm ${i + 1}: $e');
+            }
+            // Continue with other alarms even if one fails
           }
-          // Continue with other alarms even if one fails
         }
       }
 
@@ -385,30 +409,17 @@ class _AlarmSettingsPageState extends State<AlarmSettingsPage> {
         throw Exception('لا توجد حصص مجدولة');
       }
 
-      final now = DateTime.now();
       final authState = context.read<AuthBloc>().state;
       final student = (authState as AuthAuthenticated).student!;
 
-      int scheduledCount = 0;
-      // Iterate through all student schedules and their individual schedules
-      for (final studentSchedule in studentSchedules) {
-        for (final schedule in studentSchedule.schedules) {
-          final lessonDateTime = _createLessonDateTime(schedule);
-          if (lessonDateTime.isAfter(now)) {
-            // Schedule alarm for this lesson
-            final success = await AlarmService.scheduleAlarm(
-              lessonDateTime: lessonDateTime,
-              hoursBeforeLesson: hours,
-              minutesBeforeLesson: minutes,
-              lessonName: student.displayLessonName,
-              teacherName: student.teacherName ?? 'المعلم',
-            );
-            if (success) {
-              scheduledCount++;
-            }
-          }
-        }
-      }
+      final lessonDateTimes = _upcomingLessonDateTimes(studentSchedules);
+      final scheduledCount = await AlarmService.scheduleAlarms(
+        lessonDateTimes: lessonDateTimes,
+        hoursBeforeLesson: hours,
+        minutesBeforeLesson: minutes,
+        lessonName: student.displayLessonName,
+        teacherName: student.teacherName ?? 'المعلم',
+      );
 
       if (kDebugMode) {
         print('Scheduled $scheduledCount alarms for upcoming lessons');
@@ -421,6 +432,67 @@ class _AlarmSettingsPageState extends State<AlarmSettingsPage> {
     }
   }
 
+  /// Hand the weekly timetable and every configured alarm time to the native
+  /// layer, which keeps the next lessons armed from then on.
+  /// Returns the number of alarms now scheduled.
+  Future<int> _syncAlarmsForAllLessons(int studentId) async {
+    try {
+      final studentSchedules = await _scheduleRepository.getStudentSchedules(
+        studentId,
+      );
+      if (studentSchedules.isEmpty) {
+        throw Exception('لا توجد حصص مجدولة');
+      }
+
+      final authState = context.read<AuthBloc>().state;
+      final student = (authState as AuthAuthenticated).student!;
+
+      final syncedCount = await AlarmService.syncLessonRules(
+        lessons: LessonScheduleHelper.weeklyLessons(studentSchedules),
+        alarmTimes: _alarmTimes
+            .map((alarm) => {'hours': alarm.hours, 'minutes': alarm.minutes})
+            .toList(),
+        lessonName: student.displayLessonName,
+        teacherName: student.teacherName ?? 'المعلم',
+      );
+
+      // The background refresh fetches the same timetable later on
+      await ScheduleRefreshService.remember(
+        studentId: studentId,
+        lessonName: student.displayLessonName,
+        teacherName: student.teacherName ?? 'المعلم',
+      );
+
+      if (kDebugMode) {
+        print('Synced $syncedCount alarms for upcoming lessons');
+      }
+
+      return syncedCount;
+    } catch (e) {
+      if (kDebugMode) {
+        print('Error syncing alarms for all lessons: $e');
+      }
+      rethrow;
+    }
+  }
+
+  /// Collect the start time of every upcoming lesson
+  List<DateTime> _upcomingLessonDateTimes(
+    List<StudentSchedule> studentSchedules,
+  ) {
+    final now = DateTime.now();
+    final lessonDateTimes = <DateTime>[];
+    for (final studentSchedule in studentSchedules) {
+      for (final schedule in studentSchedule.schedules) {
+        final lessonDateTime = _createLessonDateTime(schedule);
+        if (lessonDateTime.isAfter(now)) {
+          lessonDateTimes.add(lessonDateTime);
+        }
+      }
+    }
+    return lessonDateTimes;
+  }
+
   DateTime _createLessonDateTime(Schedule schedule) {
     final nowEgypt = TimezoneHelper.nowInEgypt();
 
@@ -429,7 +501,9 @@ class _AlarmSettingsPageState extends State<AlarmSettingsPage> {
     if (schedule.isPostponed && schedule.postponedDate != null) {
       try {
         final postponedDate = DateTime.parse(schedule.postponedDate!);
-        final scheduledTime = _parseTimeString(schedule.hour) ?? DateTime.now();
+        final scheduledTime =
+            LessonScheduleHelper.parseTimeString(schedule.hour) ??
+                DateTime.now();
         lessonDateTimeEgypt = DateTime(
           postponedDate.year,
           postponedDate.month,
@@ -439,10 +513,12 @@ class _AlarmSettingsPageState extends State<AlarmSettingsPage> {
         );
       } catch (e) {
         // Fall back to regular schedule
-        lessonDateTimeEgypt = _calculateRegularLessonTime(schedule, nowEgypt);
+        lessonDateTimeEgypt =
+            LessonScheduleHelper.regularLessonTime(schedule, nowEgypt);
       }
     } else {
-      lessonDateTimeEgypt = _calculateRegularLessonTime(schedule, nowEgypt);
+      lessonDateTimeEgypt =
+          LessonScheduleHelper.regularLessonTime(schedule, nowEgypt);
     }
 
     // Convert Egypt time to local timezone
@@ -463,74 +539,6 @@ class _AlarmSettingsPageState extends State<AlarmSettingsPage> {
     return lessonDateTimeLocal;
   }
 
-  DateTime _calculateRegularLessonTime(Schedule schedule, DateTime nowEgypt) {
-    final dayMap = {
-      'الأحد': DateTime.sunday,
-      'الاثنين': DateTime.monday,
-      'الثلاثاء': DateTime.tuesday,
-      'الأربعاء': DateTime.wednesday,
-      'الخميس': DateTime.thursday,
-      'الجمعة': DateTime.friday,
-      'السبت': DateTime.saturday,
-    };
-
-    final scheduledDay = dayMap[schedule.day] ?? DateTime.sunday;
-    final scheduledTime = _parseTimeString(schedule.hour) ?? DateTime.now();
-
-    int daysUntil = (scheduledDay - nowEgypt.weekday) % 7;
-    if (daysUntil == 0) {
-      if (scheduledTime.hour < nowEgypt.hour ||
-          (scheduledTime.hour == nowEgypt.hour &&
-              scheduledTime.minute <= nowEgypt.minute)) {
-        daysUntil = 7;
-      }
-    }
-
-    return DateTime(
-      nowEgypt.year,
-      nowEgypt.month,
-      nowEgypt.day + daysUntil,
-      scheduledTime.hour,
-      scheduledTime.minute,
-    );
-  }
-
-  DateTime? _parseTimeString(String timeString) {
-    try {
-      // Handle both "14:30" and "2:30 PM" formats
-      timeString = timeString.trim();
-
-      // Check if it's 12-hour format with AM/PM
-      final isPM = timeString.toUpperCase().contains('PM');
-      final isAM = timeString.toUpperCase().contains('AM');
-
-      // Remove AM/PM if present
-      String cleanTime =
-          timeString.replaceAll(RegExp(r'[APMapm\s]+'), '').trim();
-
-      final parts = cleanTime.split(':');
-      if (parts.length >= 2) {
-        int hour = int.parse(parts[0]);
-        final minute = int.parse(parts[1]);
-
-        // Convert 12-hour to 24-hour format
-        if (isPM && hour != 12) {
-          hour += 12;
-        } else if (isAM && hour == 12) {
-          hour = 0;
-        }
-
-        final now = DateTime.now();
-        return DateTime(now.year, now.month, now.day, hour, minute);
-      }
-    } catch (e) {
-      if (kDebugMode) {
-        print('Error parsing time string "$timeString": $e');
-      }
-    }
-    return null;
-  }
-
   void _showSuccessDialog() {
     showDialog(
       context: context,
@@ -47,6 +47,7 @@ import 'package:tutorial_coach_mark/tutorial_coach_mark.dart';
 import 'package:shared_preferences/shared_preferences.dart';
 import '../utils/timezone_utils.dart';
 import '../../../../core/utils/version_check_helper.dart';
+import '../../../../main.dart' show lessonAlarmTap;
 
 class StudentDashboardPage extends StatefulWidget {
   const StudentDashboardPage({super.key});
@@ -975,6 +976,7 @@ class _DashboardContentState extends State<_DashboardContent> {
   @override
   void initState() {
     super.initState();
+    lessonAlarmTap.addListener(_onLessonAlarmTapped);
     // Stagger API calls to avoid rate limiting: load the primary lesson data
     // first, then secondary data, then family members.
     _loadInitialData();
@@ -983,6 +985,8 @@ class _DashboardContentState extends State<_DashboardContent> {
   Future<void> _loadInitialData() async {
     await _loadNextLesson(forceRefresh: true);
     if (!mounted) return;
+    // A tap that launched the app arrives before the lesson is loaded
+    _onLessonAlarmTapped();
     await Future.wait([
       _loadNextEvent(),
       _loadLatestUserMessage(),
@@ -993,6 +997,7 @@ class _DashboardContentState extends State<_DashboardContent> {
 
   @override
   void dispose() {
+    lessonAlarmTap.removeListener(_onLessonAlarmTapped);
     _countdownTimer?.cancel();
     _eventCountdownTimer?.cancel();
     super.dispose();
@@ -1994,13 +1999,8 @@ class _DashboardContentState extends State<_DashboardContent> {
     }
 
     // Determine if user can join the lesson
-    int lessonDuration = 30;
-    if (_nextSchedule != null && _nextSchedule!.lessonDuration.isNotEmpty) {
-      lessonDuration =
-          int.tryParse(_nextSchedule!.lessonDuration) ?? lessonDuration;
-    }
-
-    bool canJoin = false;
+    final lessonDuration = _lessonDurationMinutes;
+    final canJoin = _canJoinLesson;
     bool canPostpone = true;
 
     // Calculate actual time difference using UTC so it's correct on all platforms
@@ -2011,15 +2011,6 @@ class _DashboardContentState extends State<_DashboardContent> {
       final minutesAfterStart =
           -minutesUntilStart; // Positive after lesson starts
 
-      // إنضم للدرس (Join Lesson):
-      // Active from 15 minutes BEFORE lesson start until 10 minutes AFTER lesson ends
-      // Lesson ends at: lessonDuration minutes after start
-      // So active when: minutesUntilStart <= 15 AND minutesAfterStart <= (lessonDuration + 10)
-      if (minutesUntilStart <= 15 &&
-          minutesAfterStart <= (lessonDuration + 10)) {
-        canJoin = true;
-      }
-
       // تأجيل الدرس (Postpone Lesson):
       // Disabled from 1 hour (60 minutes) BEFORE lesson until 10 minutes AFTER lesson ends
       // So disabled when: minutesUntilStart <= 60 AND minutesAfterStart <= (lessonDuration + 10)
@@ -3384,6 +3375,44 @@ class _DashboardContentState extends State<_DashboardContent> {
     });
   }
 
+  int get _lessonDurationMinutes {
+    if (_nextSchedule != null && _nextSchedule!.lessonDuration.isNotEmpty) {
+      return int.tryParse(_nextSchedule!.lessonDuration) ?? 30;
+    }
+    return 30;
+  }
+
+  /// إنضم للدرس (Join Lesson):
+  /// Active from 15 minutes BEFORE lesson start until 10 minutes AFTER lesson ends
+  bool get _canJoinLesson {
+    if (_nextLessonUtc == null) return false;
+    final minutesUntilStart =
+        _nextLessonUtc!.difference(DateTime.now().toUtc()).inMinutes;
+    return minutesUntilStart <= 15 &&
+        -minutesUntilStart <= _lessonDurationMinutes + 10;
+  }
+
+  /// Opens the meeting for the next lesson when its alarm notification was
+  /// tapped and the lesson can be joined. Otherwise the dashboard, which the
+  /// tap already returned to, shows the lesson and its countdown.
+  void _onLessonAlarmTapped() {
+    final tap = lessonAlarmTap.value;
+    if (tap == null || !mounted || _isLoading) return;
+    lessonAlarmTap.value = null;
+
+    // An alarm that rang at or before the lesson, within the day before it,
+    // was for this lesson rather than an earlier one
+    final lessonAt = _nextLessonUtc;
+    final alarmAt = tap.alarmTime?.toUtc();
+    if (lessonAt == null || alarmAt == null) return;
+    final lead = lessonAt.difference(alarmAt);
+    if (lead.isNegative || lead > const Duration(days: 1)) return;
+
+    if (_canJoinLesson) {
+      _joinLesson();
+    }
+  }
+
   Future<void> _joinLesson() async {
     if (_nextLesson == null) return;
 
@@ -11,6 +11,9 @@ import 'package:flutter_bloc/flutter_bloc.dart';
 import 'package:flutter_localizations/flutter_localizations.dart';
 import 'core/services/notification_service.dart';
 import 'core/services/alarm_service.dart';
+import 'core/services/native_alarm_service.dart';
+import 'core/services/schedule_refresh_service.dart';
+import 'core/services/memory_pressure_service.dart';
 
 import 'core/theme/app_theme.dart';
 import 'core/utils/timezone_helper.dart';
@@ -40,6 +43,27 @@ void onAlarmRinging(AlarmSettings alarmSettings) {
   // You can add custom logic here if needed (e.g., play custom sound, vibrate)
 }
 
+/// The last tapped lesson alarm, until the student dashboard handles it.
+/// Kept here so a tap that launches the app waits for the dashboard.
+final ValueNotifier<NativeAlarmTap?> lessonAlarmTap = ValueNotifier(null);
+
+/// Called when a native lesson alarm notification is tapped.
+/// Pages opened on top of the dashboard are closed, and the dashboard joins
+/// the lesson the alarm was for if it is starting.
+void _onNativeAlarmTapped(NativeAlarmTap tap) {
+  if (kDebugMode) print('Native alarm tapped: ${tap.id}');
+  navigatorKey.currentState?.popUntil((route) => route.isFirst);
+  lessonAlarmTap.value = tap;
+}
+
+/// Entrypoint of the headless engine started by the native schedule refresh
+/// job. Only the plugins are set up; no Firebase, notifications or UI.
+@pragma('vm:entry-point')
+Future<void> scheduleRefreshMain() async {
+  WidgetsFlutterBinding.ensureInitialized();
+  await ScheduleRefreshService.runInBackground();
+}
+
 void main() async {
   WidgetsFlutterBinding.ensureInitialized();
 
@@ -106,6 +130,13 @@ void main() async {
   //    permission dialogs appear (prevents black screen on macOS/iOS).
   runApp(const MyApp());
 
+  // Alarm notification taps, registered right away so a warm engine gets them
+  // as soon as the app is opened.
+  NativeAlarmService.listenForAlarmTaps(_onNativeAlarmTapped);
+
+  // Give memory back when Android is about to kill the app
+  MemoryPressureService.listen();
+
   // 5. Initialize the remaining services after the first frame is drawn.
   //    NotificationService requests permission — doing this after runApp
   //    means the dialog appears over the splash screen, not a black screen.
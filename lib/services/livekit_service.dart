@@ -1,8 +1,19 @@
+import 'dart:async';
 import 'dart:convert';
 import 'package:crypto/crypto.dart';
 import 'package:flutter/foundation.dart';
 import 'package:livekit_client/livekit_client.dart';
 import '../core/config/livekit_config.dart';
+import '../core/services/device_condition_service.dart';
+import '../core/services/memory_pressure_service.dart';
+
+/// Camera capture settings for one quality step, from full quality down
+class _CaptureStep {
+  final VideoParameters params;
+  final double maxFrameRate;
+
+  const _CaptureStep(this.params, this.maxFrameRate);
+}
 
 class LiveKitService {
   static final LiveKitService _instance = LiveKitService._internal();
@@ -12,6 +23,28 @@ class LiveKitService {
   Room? _room;
   bool _isConnected = false;
 
+  // Capture steps used as the device heats up or runs low on battery.
+  // Simulcast layers are derived from the capture size, so lower steps
+  // also publish fewer and smaller layers.
+  static final List<_CaptureStep> _captureSteps = [
+    _CaptureStep(VideoParametersPresets.h720_169,
+        LiveKitConfig.defaultVideoFrameRate.toDouble()),
+    _CaptureStep(VideoParametersPresets.h540_169,
+        LiveKitConfig.defaultVideoFrameRate.toDouble()),
+    const _CaptureStep(VideoParametersPresets.h360_169, 12.0),
+    const _CaptureStep(VideoParametersPresets.h180_169, 8.0),
+  ];
+
+  // Quality only steps back up after conditions stayed better this long
+  static const Duration _qualityRecoveryDelay = Duration(seconds: 60);
+  static const int _lowBatteryLevel = 15;
+
+  StreamSubscription<DeviceConditions>? _conditionsSubscription;
+  StreamSubscription<MemoryPressure>? _memorySubscription;
+  Timer? _qualityRecoveryTimer;
+  int _qualityStep = 0;
+  int _targetQualityStep = 0;
+
   Room? get room => _room;
   bool get isConnected => _isConnected;
 
@@ -168,6 +201,7 @@ class LiveKitService {
         }
       }
       print('[LiveKitService] ✅ connectToRoom completed. room=${_room?.name}');
+      _startAdaptiveQuality();
       return true;
     } catch (e, st) {
       print('[LiveKitService] ❌ FATAL error connecting: $e');
@@ -181,7 +215,13 @@ class LiveKitService {
   Future<bool> enableCamera() async {
     try {
       if (_room == null) return false;
-      await _room!.localParticipant?.setCameraEnabled(true);
+      await _room!.localParticipant?.setCameraEnabled(
+        true,
+        cameraCaptureOptions: _cameraOptions(const CameraCaptureOptions()),
+      );
+      // Unmuting an existing track ignores the options above; apply any step
+      // taken while the camera was off
+      await _applyQualityStep();
       return true;
     } catch (e) {
       if (kDebugMode) {
@@ -252,8 +292,149 @@ class LiveKitService {
     }
   }
 
+  /// Follow device thermal, battery and memory state for the rest of the meeting
+  void _startAdaptiveQuality() {
+    _stopAdaptiveQuality();
+    _conditionsSubscription =
+        DeviceConditionService.conditions.listen(_onDeviceConditions);
+    _memorySubscription =
+        MemoryPressureService.events.listen(_onMemoryPressure);
+  }
+
+  void _stopAdaptiveQuality() {
+    _conditionsSubscription?.cancel();
+    _conditionsSubscription = null;
+    _memorySubscription?.cancel();
+    _memorySubscription = null;
+    _qualityRecoveryTimer?.cancel();
+    _qualityRecoveryTimer = null;
+    _qualityStep = 0;
+    _targetQualityStep = 0;
+  }
+
+  void _onDeviceConditions(DeviceConditions conditions) {
+    var step = 0;
+    if (conditions.thermalStatus >= 3) {
+      step = 3; // severe and above
+    } else if (conditions.thermalStatus > 0) {
+      step = conditions.thermalStatus; // light or moderate
+    }
+    if (conditions.powerSave && step < 1) {
+      step = 1;
+    }
+    if (!conditions.charging &&
+        conditions.batteryLevel >= 0 &&
+        conditions.batteryLevel <= _lowBatteryLevel &&
+        step < 2) {
+      step = 2;
+    }
+
+    if (kDebugMode) {
+      print('LiveKitService: $conditions -> quality step $step');
+    }
+    _targetQualityStep = step;
+
+    if (step > _qualityStep) {
+      // Step down right away so the encoder stops adding heat
+      _qualityRecoveryTimer?.cancel();
+      _qualityRecoveryTimer = null;
+      _setQualityStep(step);
+    } else if (step < _qualityStep) {
+      _scheduleQualityRecovery();
+    } else {
+      _qualityRecoveryTimer?.cancel();
+      _qualityRecoveryTimer = null;
+    }
+  }
+
+  /// Under severe memory pressure drop the camera track while it is muted.
+  /// Its capturer and frame buffers are created again when the camera is
+  /// next enabled.
+  Future<void> _onMemoryPressure(MemoryPressure pressure) async {
+    if (!pressure.isSevere) return;
+    final participant = _room?.localParticipant;
+    final publication = participant?.videoTrackPublications
+        .where((pub) => pub.source == TrackSource.camera)
+        .firstOrNull;
+    if (participant == null || publication == null || !publication.muted) {
+      return;
+    }
+
+    try {
+      await participant.removePublishedTrack(publication.sid);
+      if (kDebugMode) {
+        print('LiveKitService: Released muted camera track, $pressure');
+      }
+    } catch (e) {
+      if (kDebugMode) {
+        print('Error releasing camera track: $e');
+      }
+    }
+  }
+
+  /// Recover one step at a time so a device that is just cooling down
+  /// does not bounce between steps
+  void _scheduleQualityRecovery() {
+    if (_qualityRecoveryTimer != null) return;
+    _qualityRecoveryTimer = Timer(_qualityRecoveryDelay, () {
+      _qualityRecoveryTimer = null;
+      if (_targetQualityStep < _qualityStep) {
+        _setQualityStep(_qualityStep - 1);
+        _scheduleQualityRecovery();
+      }
+    });
+  }
+
+  Future<void> _setQualityStep(int step) async {
+    _qualityStep = step;
+    await _applyQualityStep();
+  }
+
+  /// Restarts the camera track with the current quality step, unless it is
+  /// already captured at it. A muted camera is left alone; [enableCamera]
+  /// applies the step when it is unmuted.
+  Future<void> _applyQualityStep() async {
+    final publication = _room?.localParticipant?.videoTrackPublications
+        .where((pub) => pub.source == TrackSource.camera)
+        .firstOrNull;
+    final track = publication?.track;
+    if (track == null || publication!.muted) {
+      return;
+    }
+
+    final current = track.currentOptions;
+    final base =
+        current is CameraCaptureOptions ? current : const CameraCaptureOptions();
+    final captureStep = _captureSteps[_qualityStep];
+    if (base.params.dimensions.width == captureStep.params.dimensions.width &&
+        base.params.dimensions.height == captureStep.params.dimensions.height &&
+        base.maxFrameRate == captureStep.maxFrameRate) {
+      return;
+    }
+
+    try {
+      await track.restartTrack(_cameraOptions(base));
+      if (kDebugMode) {
+        print('LiveKitService: Camera capture set to quality step $_qualityStep');
+      }
+    } catch (e) {
+      if (kDebugMode) {
+        print('Error changing camera quality: $e');
+      }
+    }
+  }
+
+  CameraCaptureOptions _cameraOptions(CameraCaptureOptions base) {
+    final captureStep = _captureSteps[_qualityStep];
+    return base.copyWith(
+      params: captureStep.params,
+      maxFrameRate: captureStep.maxFrameRate,
+    );
+  }
+
   /// Disconnect from room
   Future<void> disconnect() async {
+    _stopAdaptiveQuality();
     try {
       await _room?.disconnect();
       await _room?.dispose();